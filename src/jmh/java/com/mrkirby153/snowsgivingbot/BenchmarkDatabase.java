@@ -0,0 +1,115 @@
+package com.mrkirby153.snowsgivingbot;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection and seeding helpers shared by the database benchmarks. Defaults to an in-memory H2
+ * database in MySQL mode, set the benchJdbcUrl system property to benchmark against a real server
+ */
+public final class BenchmarkDatabase {
+
+    /**
+     * The amount of rows written by a single seeding statement
+     */
+    private static final int SEED_ROWS_PER_STATEMENT = 1000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Opens a connection to the benchmark database
+     *
+     * @return The connection
+     *
+     * @throws SQLException If the connection could not be opened
+     */
+    public static Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+            System.getProperty("benchJdbcUrl", "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1"),
+            System.getProperty("benchJdbcUser", "sa"),
+            System.getProperty("benchJdbcPassword", ""));
+    }
+
+    /**
+     * Runs the provided statements in order
+     *
+     * @param connection The connection
+     * @param sql        The statements to run
+     *
+     * @throws SQLException If a statement failed
+     */
+    public static void execute(Connection connection, String... sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String s : sql) {
+                statement.execute(s);
+            }
+        }
+    }
+
+    /**
+     * Inserts entrants into a table with (giveaway_id, user_id) columns using multi-row inserts
+     *
+     * @param connection The connection
+     * @param table      The table to insert into
+     * @param giveawayId The giveaway the entrants belong to
+     * @param userIds    The users to insert
+     * @param asString   If user ids should be bound as strings, for VARCHAR columns
+     *
+     * @throws SQLException If the insert failed
+     */
+    public static void insertEntrants(Connection connection, String table, long giveawayId,
+        long[] userIds, boolean asString) throws SQLException {
+        insert(connection, table, giveawayId, userIds, asString, -1);
+    }
+
+    /**
+     * Inserts entrants into a table with (giveaway_id, user_id, entry_number) columns, numbering
+     * them consecutively
+     *
+     * @param connection       The connection
+     * @param table            The table to insert into
+     * @param giveawayId       The giveaway the entrants belong to
+     * @param userIds          The users to insert
+     * @param firstEntryNumber The entry number of the first user
+     *
+     * @throws SQLException If the insert failed
+     */
+    public static void insertNumberedEntrants(Connection connection, String table,
+        long giveawayId, long[] userIds, long firstEntryNumber) throws SQLException {
+        insert(connection, table, giveawayId, userIds, false, firstEntryNumber);
+    }
+
+    private static void insert(Connection connection, String table, long giveawayId,
+        long[] userIds, boolean asString, long firstEntryNumber) throws SQLException {
+        boolean numbered = firstEntryNumber > 0;
+        String row = numbered ? "(?, ?, ?)" : "(?, ?)";
+        for (int start = 0; start < userIds.length; start += SEED_ROWS_PER_STATEMENT) {
+            int end = Math.min(userIds.length, start + SEED_ROWS_PER_STATEMENT);
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                .append(numbered ? " (giveaway_id, user_id, entry_number) VALUES "
+                    : " (giveaway_id, user_id) VALUES ");
+            for (int i = start; i < end; i++) {
+                sql.append(i == start ? "" : ", ").append(row);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int param = 1;
+                for (int i = start; i < end; i++) {
+                    statement.setLong(param++, giveawayId);
+                    if (asString) {
+                        statement.setString(param++, Long.toString(userIds[i]));
+                    } else {
+                        statement.setLong(param++, userIds[i]);
+                    }
+                    if (numbered) {
+                        statement.setLong(param++, firstEntryNumber + i);
+                    }
+                }
+                statement.executeUpdate();
+            }
+        }
+    }
+}
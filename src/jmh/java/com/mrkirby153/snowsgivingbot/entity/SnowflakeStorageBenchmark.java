@@ -0,0 +1,133 @@
+package com.mrkirby153.snowsgivingbot.entity;
+
+import com.mrkirby153.snowsgivingbot.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares entrant storage before (VARCHAR user ids, only the unique giveaway index) and after
+ * (BIGINT user ids with both composite indexes) V9 on a seeded million-row table
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnowflakeStorageBenchmark {
+
+    private static final int GIVEAWAYS = 10;
+    private static final int INSERT_BATCH = 100;
+
+    @Param({"varchar", "bigint"})
+    public String layout;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Connection connection;
+    private String table;
+    private boolean varchar;
+    private long[] userIds;
+    private long nextUserId;
+    private SplittableRandom random;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = BenchmarkDatabase.connect();
+        varchar = layout.equals("varchar");
+        table = "bench_entrants_" + layout;
+        String userColumn = varchar ? "VARCHAR(255)" : "BIGINT";
+        BenchmarkDatabase.execute(connection, "DROP TABLE IF EXISTS " + table,
+            "CREATE TABLE " + table + " (id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                + "giveaway_id BIGINT NOT NULL, user_id " + userColumn + " NOT NULL, "
+                + "UNIQUE (giveaway_id, user_id))");
+        if (!varchar) {
+            BenchmarkDatabase.execute(connection,
+                "CREATE INDEX " + table + "_user_giveaway ON " + table + " (user_id, giveaway_id)");
+        }
+        random = new SplittableRandom(42);
+        nextUserId = 100_000_000_000_000_000L;
+        userIds = new long[rows / GIVEAWAYS];
+        for (int giveaway = 0; giveaway < GIVEAWAYS; giveaway++) {
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = nextUserId++;
+            }
+            BenchmarkDatabase.insertEntrants(connection, table, giveaway, userIds, varchar);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        BenchmarkDatabase.execute(connection, "DROP TABLE IF EXISTS " + table);
+        connection.close();
+    }
+
+    /**
+     * A write-behind buffer flush of new entrants
+     */
+    @Benchmark
+    public void insertEntrants() throws SQLException {
+        long[] batch = new long[INSERT_BATCH];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = nextUserId++;
+        }
+        BenchmarkDatabase.insertEntrants(connection, table, random.nextInt(GIVEAWAYS), batch,
+            varchar);
+    }
+
+    /**
+     * The query winner selection runs to load every entrant of a giveaway
+     */
+    @Benchmark
+    public void loadEntrantIds(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = connection
+            .prepareStatement("SELECT user_id FROM " + table + " WHERE giveaway_id = ?")) {
+            statement.setLong(1, random.nextInt(GIVEAWAYS));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * The lookup behind findAllByUserInGuild
+     */
+    @Benchmark
+    public void findByUser(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = connection
+            .prepareStatement("SELECT giveaway_id FROM " + table + " WHERE user_id = ?")) {
+            long userId = userIds[random.nextInt(userIds.length)];
+            if (varchar) {
+                statement.setString(1, Long.toString(userId));
+            } else {
+                statement.setLong(1, userId);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getLong(1));
+                }
+            }
+        }
+    }
+}
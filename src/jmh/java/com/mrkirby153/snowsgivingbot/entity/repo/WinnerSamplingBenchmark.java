@@ -0,0 +1,164 @@
+package com.mrkirby153.snowsgivingbot.entity.repo;
+
+import com.mrkirby153.snowsgivingbot.BenchmarkDatabase;
+import com.mrkirby153.snowsgivingbot.utils.WinnerSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of drawing winners from a giveaway with a million or more entrants: probing
+ * random OFFSETs of the user index, probing random entry numbers, and loading every id to draw in
+ * memory
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WinnerSamplingBenchmark {
+
+    private static final String TABLE = "bench_sampling_entrants";
+    private static final long GIVEAWAY = 1;
+
+    @Param({"1000000", "2000000"})
+    public int entrants;
+
+    @Param({"1", "10", "50"})
+    public int winners;
+
+    private Connection connection;
+    private Random random;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = BenchmarkDatabase.connect();
+        BenchmarkDatabase.execute(connection, "DROP TABLE IF EXISTS " + TABLE,
+            "CREATE TABLE " + TABLE + " (id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                + "giveaway_id BIGINT NOT NULL, user_id BIGINT NOT NULL, "
+                + "entry_number BIGINT NOT NULL, UNIQUE (giveaway_id, user_id), "
+                + "UNIQUE (giveaway_id, entry_number))");
+        long[] userIds = new long[entrants];
+        Random seedRandom = new Random(42);
+        for (int i = 0; i < userIds.length; i++) {
+            // Snowflakes are not dense, so the user index has gaps
+            userIds[i] = 100_000_000_000_000_000L + i * 1000L + seedRandom.nextInt(1000);
+        }
+        BenchmarkDatabase.insertNumberedEntrants(connection, TABLE, GIVEAWAY, userIds, 1);
+        random = new Random(7);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        BenchmarkDatabase.execute(connection, "DROP TABLE IF EXISTS " + TABLE);
+        connection.close();
+    }
+
+    /**
+     * The previous sampling query. Each probe skips offset rows of the index
+     */
+    @Benchmark
+    public long[] offsetProbes() throws SQLException {
+        long[] drawn = new long[winners];
+        try (PreparedStatement statement = connection.prepareStatement("SELECT user_id FROM "
+            + TABLE + " WHERE giveaway_id = ? ORDER BY user_id LIMIT 1 OFFSET ?")) {
+            for (int i = 0; i < winners; i++) {
+                statement.setLong(1, GIVEAWAY);
+                statement.setLong(2, (long) (random.nextDouble() * entrants));
+                drawn[i] = single(statement);
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * The previous entry number query, a point lookup per probe
+     */
+    @Benchmark
+    public long[] entryNumberProbes() throws SQLException {
+        long[] drawn = new long[winners];
+        try (PreparedStatement statement = connection.prepareStatement(
+            "SELECT user_id FROM " + TABLE + " WHERE giveaway_id = ? AND entry_number = ?")) {
+            for (int i = 0; i < winners; i++) {
+                statement.setLong(1, GIVEAWAY);
+                statement.setLong(2, 1 + (long) (random.nextDouble() * entrants));
+                drawn[i] = single(statement);
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * The current sampling query, every probe of a round in one lookup. Twice the winners are
+     * probed to cover gaps
+     */
+    @Benchmark
+    public long[] entryNumberBatchProbes() throws SQLException {
+        int probes = winners * 2 + 8;
+        StringBuilder sql = new StringBuilder("SELECT entry_number, user_id FROM " + TABLE
+            + " WHERE giveaway_id = ? AND entry_number IN (");
+        for (int i = 0; i < probes; i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        long[] drawn = new long[winners];
+        int size = 0;
+        sql.append(")");
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            statement.setLong(1, GIVEAWAY);
+            for (int i = 0; i < probes; i++) {
+                statement.setLong(i + 2, 1 + (long) (random.nextDouble() * entrants));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next() && size < winners) {
+                    drawn[size++] = rs.getLong(2);
+                }
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * Loads every entrant and draws in memory
+     */
+    @Benchmark
+    public long[] loadAll() throws SQLException {
+        long[] ids = new long[entrants];
+        int size = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+            "SELECT user_id FROM " + TABLE + " WHERE giveaway_id = ? ORDER BY user_id")) {
+            statement.setLong(1, GIVEAWAY);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids[size++] = rs.getLong(1);
+                }
+            }
+        }
+        return WinnerSelector
+            .select(Arrays.copyOf(ids, size), winners, Collections.emptySet(), random);
+    }
+
+    private static long single(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+}
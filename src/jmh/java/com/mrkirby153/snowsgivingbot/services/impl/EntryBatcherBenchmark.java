@@ -0,0 +1,87 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.utils.EntryPayload;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+/**
+ * Measures how many deliveries per second an entrant queue consumer gets through. The broker is
+ * stood in for by a channel that only counts acknowledgements, and recording a batch costs a
+ * fixed simulated database round trip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntryBatcherBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    @Param({"1", "16"})
+    public int entriesPerDelivery;
+
+    @Param({"0", "500"})
+    public long recordMicros;
+
+    private final AtomicLong acknowledgements = new AtomicLong();
+    private ScheduledExecutorService flushExecutor;
+    private Channel channel;
+    private EntryBatcher batcher;
+    private byte[] body;
+    private long deliveryTag;
+
+    @Setup
+    public void setup() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        channel = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(),
+            new Class<?>[]{Channel.class}, (proxy, method, args) -> {
+                acknowledgements.incrementAndGet();
+                return null;
+            });
+        long recordNanos = TimeUnit.MICROSECONDS.toNanos(recordMicros);
+        batcher = new EntryBatcher("benchmark", batchSize, 250, 5, flushExecutor, userIds -> {
+            if (recordNanos > 0) {
+                LockSupport.parkNanos(recordNanos);
+            }
+        }, new SimpleMeterRegistry());
+        // The default prefetch count
+        batcher.setMaxDeliveries(100);
+        body = EntryPayload.encode(
+            LongStream.range(0, entriesPerDelivery).map(i -> 100_000_000_000_000_000L + i)
+                .toArray(), System.currentTimeMillis());
+    }
+
+    @TearDown
+    public void tearDown() {
+        batcher.flush();
+        flushExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int deliver() {
+        return batcher.add(channel, ++deliveryTag, body);
+    }
+}
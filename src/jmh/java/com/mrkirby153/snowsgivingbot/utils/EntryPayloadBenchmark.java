@@ -0,0 +1,95 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Compares decoding a batch of entries from one binary payload to decoding the same entries from
+ * one legacy payload each. The payload counters report the bytes and entries decoded, so their
+ * ratio is the bytes per entry of each format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntryPayloadBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int entries;
+
+    private byte[] binary;
+    private byte[][] legacy;
+
+    @Setup
+    public void setup() {
+        long[] userIds = LongStream.range(0, entries).map(i -> 100_000_000_000_000_000L + i)
+            .toArray();
+        binary = EntryPayload.encode(userIds, System.currentTimeMillis());
+        legacy = new byte[entries][];
+        for (int i = 0; i < entries; i++) {
+            legacy[i] = ("\"" + userIds[i] + "\"").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public long binary(PayloadCounters counters) {
+        Sum sum = new Sum();
+        EntryPayload.getTimestamp(binary);
+        counters.entries += EntryPayload.decode(binary, sum);
+        counters.bytes += binary.length;
+        return sum.value;
+    }
+
+    @Benchmark
+    public long legacy(PayloadCounters counters) {
+        Sum sum = new Sum();
+        for (byte[] body : legacy) {
+            EntryPayload.getTimestamp(body);
+            counters.entries += EntryPayload.decode(body, sum);
+            counters.bytes += body.length;
+        }
+        return sum.value;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadCounters {
+
+        public long bytes;
+        public long entries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            entries = 0;
+        }
+    }
+
+    private static class Sum implements LongConsumer {
+
+        private long value;
+
+        @Override
+        public void accept(long userId) {
+            value += userId;
+        }
+    }
+}
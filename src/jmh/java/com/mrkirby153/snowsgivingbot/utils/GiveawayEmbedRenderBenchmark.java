@@ -0,0 +1,85 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.services.impl.GiveawayRenderManager;
+import com.mrkirby153.snowsgivingbot.services.setting.GuildSetting;
+import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
+import com.mrkirby153.snowsgivingbot.services.setting.Settings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares rendering a giveaway embed from scratch (cold) to serving it from the render manager's
+ * cache (warm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GiveawayEmbedRenderBenchmark {
+
+    @Param({"RUNNING", "ENDED"})
+    public GiveawayState state;
+
+    @Param({"false", "true"})
+    public boolean useButtons;
+
+    private GiveawayEntity giveaway;
+    private SettingService settings;
+    private GiveawayRenderManager renderManager;
+
+    @Setup
+    public void setup() {
+        Map<GuildSetting<?>, Object> values = Map.of(Settings.USE_BUTTONS, useButtons,
+            Settings.DISPLAY_ENTRANT_COUNT, true);
+        settings = (SettingService) Proxy.newProxyInstance(
+            SettingService.class.getClassLoader(), new Class<?>[]{SettingService.class},
+            (proxy, method, args) -> values.get(args[0]));
+
+        giveaway = new GiveawayEntity();
+        giveaway.setId(1);
+        giveaway.setName("Benchmark Giveaway");
+        giveaway.setGuildId(1);
+        giveaway.setHost(100_000_000_000_000_000L);
+        giveaway.setWinners(10);
+        giveaway.setEndsAt(new Timestamp(System.currentTimeMillis()));
+        giveaway.setState(state);
+        if (state == GiveawayState.ENDED) {
+            giveaway.setFinalWinners(IntStream.range(0, 10)
+                .mapToObj(i -> Long.toString(100_000_000_000_000_000L + i))
+                .toArray(String[]::new));
+        }
+        renderManager = new GiveawayRenderManager(null, settings, null, null,
+            new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Message cold() {
+        return GiveawayEmbedUtils.renderMessage(giveaway, settings, 1000);
+    }
+
+    @Benchmark
+    public Message warm() {
+        return renderManager.renderMessage(giveaway, 1000);
+    }
+}
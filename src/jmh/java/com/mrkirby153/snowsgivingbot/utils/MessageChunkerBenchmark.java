@@ -0,0 +1,82 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares building a winner announcement with {@link MessageChunker} to the previous
+ * String.format based splitting
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageChunkerBenchmark {
+
+    private static final String WIN_MESSAGE = "you won **Benchmark Giveaway**\n"
+        + "<https://discordapp.com/channels/1/2/3>";
+
+    @Param({"10", "1000", "50000"})
+    public int winners;
+
+    private List<String> winnerIds;
+
+    @Setup
+    public void setup() {
+        winnerIds = IntStream.range(0, winners)
+            .mapToObj(i -> Long.toString(100_000_000_000_000_000L + i))
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> stringFormat() {
+        List<String> winnerMentions = winnerIds.stream()
+            .map(id -> String.format("<@!%s>", id)).collect(Collectors.toList());
+        String winMessage = String.format(":tada: Congratulations %s, %s",
+            String.join(" ", winnerMentions), WIN_MESSAGE);
+        if (winMessage.length() < 1900) {
+            return Collections.singletonList(winMessage);
+        }
+        List<String> messages = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        builder.append(":tada: Congratulations ");
+        for (String mention : winnerMentions) {
+            if (builder.length() + mention.length() + 1 > 1990) {
+                messages.add(builder.toString());
+                builder = new StringBuilder();
+            }
+            builder.append(String.format("%s ", mention));
+        }
+        if (builder.length() + WIN_MESSAGE.length() >= 1990) {
+            messages.add(builder.toString());
+            builder = new StringBuilder();
+        }
+        builder.append(WIN_MESSAGE);
+        messages.add(builder.toString());
+        return messages;
+    }
+
+    @Benchmark
+    public List<String> chunker() {
+        return new MessageChunker().append(":tada: Congratulations ")
+            .appendMentions(winnerIds, " ").separator(", ").append(WIN_MESSAGE).build();
+    }
+}
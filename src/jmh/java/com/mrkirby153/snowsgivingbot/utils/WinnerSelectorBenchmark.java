@@ -0,0 +1,82 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link WinnerSelector} to the previous list removal draw. Both copy the loaded ids
+ * first, as each draw used to load a fresh list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WinnerSelectorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int entrants;
+
+    @Param({"10", "1000"})
+    public int winners;
+
+    private long[] ids;
+    private List<String> stringIds;
+    private List<String> existingWinners;
+    private Set<Long> excluded;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        ids = new long[entrants];
+        stringIds = new ArrayList<>(entrants);
+        for (int i = 0; i < entrants; i++) {
+            ids[i] = 100_000_000_000_000_000L + i;
+            stringIds.add(Long.toString(ids[i]));
+        }
+        // A reroll excluding the previous winners
+        existingWinners = new ArrayList<>();
+        excluded = new HashSet<>();
+        for (int i = 0; i < winners; i++) {
+            existingWinners.add(stringIds.get(i * (entrants / winners)));
+            excluded.add(ids[i * (entrants / winners)]);
+        }
+    }
+
+    @Benchmark
+    public List<String> listRemoval() {
+        List<String> allIds = new ArrayList<>(stringIds);
+        List<String> winList = new ArrayList<>();
+        while (winList.size() < winners && !allIds.isEmpty()) {
+            String potentialWinner;
+            do {
+                potentialWinner = allIds.remove(random.nextInt(allIds.size()));
+            } while (existingWinners.contains(potentialWinner) && !allIds.isEmpty());
+            winList.add(potentialWinner);
+        }
+        return winList;
+    }
+
+    @Benchmark
+    public long[] fisherYates() {
+        return WinnerSelector.select(ids.clone(), winners, excluded, random);
+    }
+}
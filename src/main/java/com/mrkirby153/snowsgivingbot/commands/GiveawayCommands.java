@@ -5,14 +5,15 @@ import com.mrkirby153.botcore.command.CommandException;
 import com.mrkirby153.botcore.command.Context;
 import com.mrkirby153.botcore.command.args.CommandContext;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
-import com.mrkirby153.snowsgivingbot.entity.GiveawayEntrantEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayRoleEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
 import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
 import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
 import com.mrkirby153.snowsgivingbot.services.ConfirmationService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayService;
 import com.mrkirby153.snowsgivingbot.services.PermissionService;
+import com.mrkirby153.snowsgivingbot.utils.MessageChunker;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.Permission;
@@ -43,6 +44,7 @@ public class GiveawayCommands {
     private final PermissionService ps;
     private final ConfirmationService confirmationService;
     private final ShardManager shardManager;
+    private final GiveawayCacheService giveawayCacheService;
 
     @Command(name = "start", arguments = {"<time:string>", "<prize:string...>"}, clearance = 100,
         permissions = {Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_HISTORY,
@@ -93,12 +95,13 @@ public class GiveawayCommands {
         Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_HISTORY})
     public void endGiveaway(Context context, CommandContext cmdContext) {
         try {
-            GiveawayEntity entity = gr.findByMessageId(cmdContext.getNotNull("mid"))
+            GiveawayEntity entity = gr
+                .findByMessageId(Long.parseLong(cmdContext.getNotNull("mid")))
                 .orElseThrow(() -> new CommandException("Giveaway not found!"));
-            if (!entity.getGuildId().equals(context.getGuild().getId())) {
+            if (entity.getGuildId() != context.getGuild().getIdLong()) {
                 throw new CommandException("Giveaway was not found");
             }
-            giveawayService.endGiveaway(cmdContext.getNotNull("mid"));
+            giveawayService.endGiveaway(entity.getMessageId());
             context.getChannel().sendMessage("Ended giveaway " + entity.getName()).queue();
         } catch (IllegalArgumentException e) {
             throw new CommandException(e.getMessage());
@@ -109,9 +112,10 @@ public class GiveawayCommands {
         "[users:string...]"}, clearance = 100, permissions = {Permission.MESSAGE_EMBED_LINKS,
         Permission.MESSAGE_HISTORY})
     public void reroll(Context context, CommandContext cmdContext) {
-        GiveawayEntity entity = gr.findByMessageId(cmdContext.getNotNull("mid"))
+        GiveawayEntity entity = gr
+            .findByMessageId(Long.parseLong(cmdContext.getNotNull("mid")))
             .orElseThrow(() -> new CommandException("Giveaway not found"));
-        if (!entity.getGuildId().equals(context.getGuild().getId())) {
+        if (entity.getGuildId() != context.getGuild().getIdLong()) {
             throw new CommandException("Giveaway not found");
         }
         try {
@@ -167,20 +171,20 @@ public class GiveawayCommands {
         int users = commandContext.getNotNull("users");
         context.getChannel().sendMessage("Adding " + users + " fake users to giveaway " + id)
             .queue();
-        List<GiveawayEntrantEntity> entries = new ArrayList<>();
+        List<Long> entries = new ArrayList<>();
         for (int i = 0; i < users; i++) {
-            GiveawayEntrantEntity gee = new GiveawayEntrantEntity(ge, "" + i);
-            entries.add(gee);
+            entries.add((long) i);
         }
-        er.saveAll(entries);
+        er.batchInsert(ge.getId(), entries);
         context.getChannel().sendMessage("Done").queue();
     }
 
     @Command(name = "secret", arguments = {"<mid:snowflake>", "<state:boolean>"}, clearance = 100)
     public void setPrivate(Context context, CommandContext commandContext) {
-        GiveawayEntity entity = gr.findByMessageId(commandContext.getNotNull("mid"))
+        GiveawayEntity entity = gr
+            .findByMessageId(Long.parseLong(commandContext.getNotNull("mid")))
             .orElseThrow(() -> new CommandException("Giveaway was not found"));
-        if (!entity.getGuildId().equals(context.getGuild().getId())) {
+        if (entity.getGuildId() != context.getGuild().getIdLong()) {
             throw new CommandException("Giveaway was not found");
         }
         if (entity.getState() == GiveawayState.ENDED) {
@@ -188,6 +192,7 @@ public class GiveawayCommands {
         }
         entity.setSecret(commandContext.getNotNull("state"));
         gr.save(entity);
+        giveawayCacheService.invalidate(entity);
         String s = commandContext.getNotNull("state") ? "is now" : "no longer is";
         context.getChannel()
             .sendMessage(":ok_hand: **" + entity.getName() + "** " + s + " a secret giveaway")
@@ -196,45 +201,28 @@ public class GiveawayCommands {
 
     @Command(name = "winners", arguments = {"<mid:snowflake>"}, clearance = 100)
     public void getWinners(Context context, CommandContext commandContext) {
-        GiveawayEntity entity = gr.findByMessageId(commandContext.getNotNull("mid"))
+        GiveawayEntity entity = gr
+            .findByMessageId(Long.parseLong(commandContext.getNotNull("mid")))
             .orElseThrow(() -> new CommandException("Giveaway was not found"));
-        if (!entity.getGuildId().equals(context.getGuild().getId())) {
+        if (entity.getGuildId() != context.getGuild().getIdLong()) {
             throw new CommandException("Giveaway was not found");
         }
         if (entity.getState() != GiveawayState.ENDED) {
             throw new CommandException("Giveaway has not ended yet!");
         }
-        String[] winners = entity.getFinalWinners();
-
-        String winnerString = Arrays.stream(winners).map(String::trim).map(s -> "<@!" + s + ">")
-            .collect(Collectors.joining(", "));
-        String winMessage = String
-            .format("The winners for **%s** are\n%s", entity.getName(), winnerString);
-        if (winMessage.length() < 2000) {
-            context.getChannel().sendMessage(winMessage).queue();
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append(String.format("The winners for **%s** are\n", entity.getName()));
-            for (String winner : winners) {
-                String toAppend = String.format("<@!%s> ", winner);
-                if (sb.length() + toAppend.length() > 1990) {
-                    context.getChannel().sendMessage(sb.toString()).queue();
-                    sb = new StringBuilder();
-                }
-                sb.append(toAppend);
-            }
-            if (sb.length() > 0) {
-                context.getChannel().sendMessage(sb.toString()).queue();
-            }
-        }
+        new MessageChunker()
+            .append(String.format("The winners for **%s** are\n", entity.getName()))
+            .appendMentions(Arrays.asList(entity.getFinalWinners()), ", ").build()
+            .forEach(message -> context.getChannel().sendMessage(message).queue());
     }
 
     @Command(name = "set", parent = "winners", arguments = {"<mid:snowflake>",
         "<winners:int>"}, clearance = 100)
     public void setWinners(Context context, CommandContext commandContext) {
-        GiveawayEntity entity = gr.findByMessageId(commandContext.getNotNull("mid"))
+        GiveawayEntity entity = gr
+            .findByMessageId(Long.parseLong(commandContext.getNotNull("mid")))
             .orElseThrow(() -> new CommandException("Giveaway was not found"));
-        if (!entity.getGuildId().equals(context.getGuild().getId())) {
+        if (entity.getGuildId() != context.getGuild().getIdLong()) {
             throw new CommandException("Giveaway was not found");
         }
         if (entity.getState() != GiveawayState.RUNNING) {
@@ -242,6 +230,7 @@ public class GiveawayCommands {
         }
         entity.setWinners(commandContext.getNotNull("winners"));
         gr.save(entity);
+        giveawayCacheService.invalidate(entity);
         giveawayService.update(entity);
         context.getChannel().sendMessage("Winners set to " + commandContext.getNotNull("winners"))
             .queue();
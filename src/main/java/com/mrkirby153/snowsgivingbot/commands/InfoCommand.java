@@ -3,8 +3,7 @@ package com.mrkirby153.snowsgivingbot.commands;
 import com.mrkirby153.botcore.command.Command;
 import com.mrkirby153.botcore.command.Context;
 import com.mrkirby153.botcore.command.args.CommandContext;
-import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
-import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.services.StatisticsService;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.sharding.ShardManager;
@@ -17,19 +16,17 @@ import java.awt.Color;
 public class InfoCommand {
 
     private final ShardManager shardManager;
-    private final EntrantRepository entrantRepository;
-    private final GiveawayRepository giveawayRepository;
+    private final StatisticsService statisticsService;
     private final String prefix;
     private final String supportServer;
 
     public InfoCommand(@Value("${bot.prefix:!}") String prefix,
         @Value("${bot.support-server:}") String supportServer, ShardManager shardManager,
-        GiveawayRepository giveawayRepository, EntrantRepository entrantRepository) {
+        StatisticsService statisticsService) {
         this.shardManager = shardManager;
         this.prefix = prefix;
         this.supportServer = supportServer;
-        this.entrantRepository = entrantRepository;
-        this.giveawayRepository = giveawayRepository;
+        this.statisticsService = statisticsService;
     }
 
 
@@ -47,8 +44,8 @@ public class InfoCommand {
         eb.addField("Shards",
             "[" + context.getJDA().getShardInfo().getShardId() + " / " + context.getJDA()
                 .getShardInfo().getShardTotal() + "]", true);
-        eb.addField("Giveaways Held", Long.toString(giveawayRepository.count()), true);
-        eb.addField("Entrants Recorded", Long.toString(entrantRepository.count()), true);
+        eb.addField("Giveaways Held", Long.toString(statisticsService.getGiveawayCount()), true);
+        eb.addField("Entrants Recorded", Long.toString(statisticsService.getEntrantCount()), true);
         context.getChannel().sendMessage(eb.build()).queue();
     }
 }
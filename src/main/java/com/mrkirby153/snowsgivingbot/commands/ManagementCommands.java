@@ -50,6 +50,7 @@ public class ManagementCommands {
         settingMap.put("jumplinks", Settings.DISPLAY_JUMP_LINKS);
         settingMap.put("dashboard-age", Settings.HIDE_GIVEAWAYS_DASHBOARD_AGE);
         settingMap.put("buttons", Settings.USE_BUTTONS);
+        settingMap.put("entrants", Settings.DISPLAY_ENTRANT_COUNT);
     }
 
     private final List<EditableSetting<?>> editableSettings = new ArrayList<>();
@@ -115,6 +116,9 @@ public class ManagementCommands {
         editableSettings.add(
             new EditableSetting<>(Settings.USE_BUTTONS, "Enable Buttons", Object::toString,
                 BOOLEAN_PARSER));
+        editableSettings.add(
+            new EditableSetting<>(Settings.DISPLAY_ENTRANT_COUNT, "Display Entrant Count",
+                Object::toString, BOOLEAN_PARSER));
     }
 
     @Command(name = "configure", clearance = 100, permissions = {Permission.MESSAGE_EMBED_LINKS})
@@ -8,8 +8,10 @@ import com.mrkirby153.snowsgivingbot.entity.GiveawayRoleEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
 import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
 import com.mrkirby153.snowsgivingbot.services.ConfirmationService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayService;
 import com.mrkirby153.snowsgivingbot.services.PermissionService;
+import com.mrkirby153.snowsgivingbot.utils.MessageChunker;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.Permission;
@@ -35,6 +37,7 @@ public class GiveawaySlashCommands {
     private final GiveawayRepository gr;
     private final PermissionService ps;
     private final ConfirmationService confirmationService;
+    private final GiveawayCacheService giveawayCacheService;
 
     @SlashCommand(name = "start", description = "Starts a new giveaway", clearance = 100)
     public void start(SlashCommandEvent event,
@@ -80,9 +83,9 @@ public class GiveawaySlashCommands {
     @SlashCommand(name = "end", description = "Ends a giveaway", clearance = 100)
     public void endGiveaway(SlashCommandEvent event,
         @SlashCommandParameter(name = "message_id", description = "The message id of the giveaway to end") String messageId) {
-        GiveawayEntity entity = gr.findByMessageId(messageId)
+        GiveawayEntity entity = gr.findByMessageId(parseMessageId(messageId))
             .orElseThrow(() -> new CommandException("Giveaway not found"));
-        giveawayService.endGiveaway(messageId);
+        giveawayService.endGiveaway(entity.getMessageId());
         event.reply("Ended giveaway **" + entity.getName() + "**").queue();
     }
 
@@ -90,7 +93,7 @@ public class GiveawaySlashCommands {
     public void reroll(SlashCommandEvent event,
         @SlashCommandParameter(name = "message_id", description = "The message id of the giveaway to reroll") String messageId,
         @SlashCommandParameter(name = "users", description = "A list of user ids to reroll (comma separated)") @Nullable String userIds) {
-        GiveawayEntity entity = gr.findByMessageId(messageId)
+        GiveawayEntity entity = gr.findByMessageId(parseMessageId(messageId))
             .orElseThrow(() -> new CommandException("Giveaway not found"));
         event.deferReply().queue(hook -> {
             try {
@@ -142,41 +145,17 @@ public class GiveawaySlashCommands {
         if (isPrivate == null) {
             isPrivate = false;
         }
-        GiveawayEntity entity = gr.findByMessageId(messageId)
+        GiveawayEntity entity = gr.findByMessageId(parseMessageId(messageId))
             .orElseThrow(() -> new CommandException("Giveaway was not found"));
         if (entity.getState() != GiveawayState.ENDED) {
             throw new CommandException("Giveaway has not ended yet");
         }
-        String[] winners = entity.getFinalWinners();
-        String winnerString = Arrays.stream(winners).map(String::trim).map(s -> "<@!" + s + ">")
-            .collect(Collectors.joining(", "));
-        String winMessage = String
-            .format("The winners for **%s** are\n%s", entity.getName(), winnerString);
-        if (winMessage.length() < 2000) {
-            event.reply(winMessage).setEphemeral(isPrivate).queue();
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append(String.format("The winners for **%s** are\n", entity.getName()));
-            boolean firstMessage = true;
-            for (String winner : winners) {
-                String toAppend = String.format("<@!%s> ", winner);
-                if (sb.length() + toAppend.length() > 1990) {
-                    if (firstMessage) {
-                        event.reply(sb.toString()).setEphemeral(isPrivate).queue();
-                        firstMessage = false;
-                    } else {
-                        event.getHook().sendMessage(sb.toString()).setEphemeral(isPrivate).queue();
-                    }
-                }
-                sb.append(toAppend);
-            }
-            if (sb.length() > 0) {
-                if (firstMessage) {
-                    event.reply(sb.toString()).setEphemeral(isPrivate).queue();
-                } else {
-                    event.getHook().sendMessage(sb.toString()).setEphemeral(isPrivate).queue();
-                }
-            }
+        List<String> messages = new MessageChunker()
+            .append(String.format("The winners for **%s** are\n", entity.getName()))
+            .appendMentions(Arrays.asList(entity.getFinalWinners()), ", ").build();
+        event.reply(messages.get(0)).setEphemeral(isPrivate).queue();
+        for (String message : messages.subList(1, messages.size())) {
+            event.getHook().sendMessage(message).setEphemeral(isPrivate).queue();
         }
     }
 
@@ -184,9 +163,9 @@ public class GiveawaySlashCommands {
     public void setWinners(SlashCommandEvent event,
         @SlashCommandParameter(name = "message_id", description = "The message id of the gveaway") String messageId,
         @SlashCommandParameter(name = "winners", description = "The number of winners") int winners) {
-        GiveawayEntity entity = gr.findByMessageId(messageId)
+        GiveawayEntity entity = gr.findByMessageId(parseMessageId(messageId))
             .orElseThrow(() -> new CommandException("Giveaway was not found"));
-        if (!entity.getGuildId().equals(event.getGuild().getId())) {
+        if (entity.getGuildId() != event.getGuild().getIdLong()) {
             throw new CommandException("Giveaway was not found");
         }
         if (entity.getState() != GiveawayState.RUNNING) {
@@ -194,6 +173,7 @@ public class GiveawaySlashCommands {
         }
         entity.setWinners(winners);
         gr.save(entity);
+        giveawayCacheService.invalidate(entity);
         giveawayService.update(entity);
         event.reply("Winners set to " + winners).setEphemeral(true).queue();
     }
@@ -252,4 +232,12 @@ public class GiveawaySlashCommands {
                 .queue(m -> hook.deleteOriginal().queue());
         });
     }
+
+    private long parseMessageId(String messageId) {
+        try {
+            return Long.parseLong(messageId.trim());
+        } catch (NumberFormatException e) {
+            throw new CommandException("Invalid message id");
+        }
+    }
 }
@@ -1,8 +1,7 @@
 package com.mrkirby153.snowsgivingbot.commands.slashcommands;
 
 import com.mrkirby153.botcore.command.slashcommand.SlashCommand;
-import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
-import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.services.StatisticsService;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
@@ -20,8 +19,7 @@ import static com.mrkirby153.snowsgivingbot.commands.HelpCommand.DISCORD_OAUTH_I
 public class InfoSlashCommands {
 
     private final ShardManager shardManager;
-    private final EntrantRepository entrantRepository;
-    private final GiveawayRepository giveawayRepository;
+    private final StatisticsService statisticsService;
     private final String prefix;
     private final String permissions;
     private final String supportServer;
@@ -30,12 +28,11 @@ public class InfoSlashCommands {
         @Value("${bot.support-server:}") String supportServer,
         @Value("${bot.permissions:" + DEFAULT_PERMISSIONS + "}") String permissions,
         ShardManager shardManager,
-        GiveawayRepository giveawayRepository, EntrantRepository entrantRepository) {
+        StatisticsService statisticsService) {
         this.shardManager = shardManager;
         this.prefix = prefix;
         this.supportServer = supportServer;
-        this.entrantRepository = entrantRepository;
-        this.giveawayRepository = giveawayRepository;
+        this.statisticsService = statisticsService;
         this.permissions = permissions;
     }
 
@@ -54,8 +51,8 @@ public class InfoSlashCommands {
         eb.addField("Shards",
             "[" + event.getJDA().getShardInfo().getShardId() + " / " + event.getJDA()
                 .getShardInfo().getShardTotal() + "]", true);
-        eb.addField("Giveaways Held", Long.toString(giveawayRepository.count()), true);
-        eb.addField("Entrants Recorded", Long.toString(entrantRepository.count()), true);
+        eb.addField("Giveaways Held", Long.toString(statisticsService.getGiveawayCount()), true);
+        eb.addField("Entrants Recorded", Long.toString(statisticsService.getEntrantCount()), true);
         event.replyEmbeds(eb.build()).queue();
     }
 
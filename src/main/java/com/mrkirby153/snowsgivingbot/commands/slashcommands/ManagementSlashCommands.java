@@ -102,6 +102,9 @@ public class ManagementSlashCommands {
         editableSettings.add(
             new EditableSetting<>(Settings.USE_BUTTONS, "Enable Buttons", "buttons",
                 Objects::toString, BOOLEAN_PARSER));
+        editableSettings.add(
+            new EditableSetting<>(Settings.DISPLAY_ENTRANT_COUNT, "Display Entrant Count",
+                "entrants", Objects::toString, BOOLEAN_PARSER));
     }
 
     @SlashCommand(name = "configure list", clearance = 100, description = "Get a list of all the configuration settings")
@@ -10,7 +10,9 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -39,22 +41,32 @@ public class GiveawayEntity {
     private String name;
 
     @Column(name = "host")
-    private String host;
+    private Long host;
 
-    @NonNull
     @Column(name = "guild_id")
-    private String guildId;
+    private long guildId;
 
-    @NonNull
     @Column(name = "channel")
-    private String channelId;
+    private long channelId;
 
-    @NonNull
     @Column(name = "message")
-    private String messageId;
+    private long messageId;
 
     private int winners;
 
+    /**
+     * Only written through GiveawayRepository.updateEntrantCount so saving a stale entity does not
+     * overwrite it
+     */
+    @Column(name = "entrant_count", insertable = false, updatable = false)
+    private long entrantCount;
+
+    /**
+     * Only written by EntrantRepository while it holds the giveaway's row lock
+     */
+    @Column(name = "last_entry_number", insertable = false, updatable = false)
+    private long lastEntryNumber;
+
     @NonNull
     @Column(name = "secret")
     private boolean secret = false;
@@ -76,6 +88,18 @@ public class GiveawayEntity {
     @Column(name = "final_winners")
     private String finalWinners;
 
+    /**
+     * The seed of the random number generator used to draw the winners
+     */
+    @Column(name = "draw_seed")
+    private Long drawSeed;
+
+    /**
+     * The next candidates of the draw, consumed in order by rerolls
+     */
+    @Column(name = "reroll_candidates")
+    private String rerollCandidates;
+
     private long version = GiveawayMigrationManager.LATEST_GIVEAWAY_VERSION;
 
     public String[] getFinalWinners() {
@@ -92,6 +116,21 @@ public class GiveawayEntity {
         }
     }
 
+    public long[] getRerollCandidates() {
+        if (rerollCandidates == null || rerollCandidates.isEmpty()) {
+            return new long[0];
+        }
+        return Arrays.stream(rerollCandidates.split(",")).mapToLong(Long::parseLong).toArray();
+    }
+
+    public void setRerollCandidates(long[] candidates) {
+        if (candidates == null) {
+            rerollCandidates = null;
+        } else {
+            rerollCandidates = Arrays.stream(candidates).mapToObj(Long::toString)
+                .collect(Collectors.joining(","));
+        }
+    }
 
     @Override
     public String toString() {
@@ -4,16 +4,17 @@ import lombok.*;
 
 import javax.persistence.*;
 
-@Table(name = "entrants")
+@Table(name = "entrants", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"giveaway_id", "user_id"}),
+    @UniqueConstraint(columnNames = {"giveaway_id", "entry_number"})})
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
-@RequiredArgsConstructor
 @Data
 public class GiveawayEntrantEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
     @ManyToOne
@@ -22,6 +23,17 @@ public class GiveawayEntrantEntity {
     private GiveawayEntity giveaway;
 
     @Column(name = "user_id")
-    @NonNull
-    private String userId;
+    private long userId;
+
+    /**
+     * The position of the entry within its giveaway, starting at 1. Assigned by
+     * EntrantRepositoryCustom when the entrant is inserted
+     */
+    @Column(name = "entry_number", insertable = false, updatable = false)
+    private long entryNumber;
+
+    public GiveawayEntrantEntity(@NonNull GiveawayEntity giveaway, long userId) {
+        this.giveaway = giveaway;
+        this.userId = userId;
+    }
 }
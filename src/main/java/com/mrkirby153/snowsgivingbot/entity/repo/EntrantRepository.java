@@ -2,32 +2,27 @@ package com.mrkirby153.snowsgivingbot.entity.repo;
 
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntrantEntity;
-import lombok.NonNull;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
-import org.springframework.scheduling.annotation.Async;
 
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
-public interface EntrantRepository extends CrudRepository<GiveawayEntrantEntity, Long> {
+public interface EntrantRepository extends CrudRepository<GiveawayEntrantEntity, Long>,
+    EntrantRepositoryCustom {
 
     List<GiveawayEntrantEntity> findAllByGiveaway(GiveawayEntity entity);
 
     @Query("SELECT DISTINCT e.userId from GiveawayEntrantEntity e WHERE e.giveaway.id = (:giveawayId) AND e.userId IN :users")
-    List<String> findAllPreviouslyEntered(@Param("giveawayId") long giveawayId, @Param("users") Iterable<String> users);
+    List<Long> findAllPreviouslyEntered(@Param("giveawayId") long giveawayId, @Param("users") Iterable<Long> users);
 
     @Query("SELECT DISTINCT e.userId FROM GiveawayEntrantEntity e WHERE e.giveaway = (:entity)")
-    List<String> findAllIdsFromGiveaway(@Param("entity") GiveawayEntity entity);
+    List<Long> findAllIdsFromGiveaway(@Param("entity") GiveawayEntity entity);
 
-    boolean existsByGiveawayAndUserId(GiveawayEntity giveaway, String userId);
+    long countByGiveaway(GiveawayEntity giveaway);
 
-    @Async
-    @Query("SELECT case when count(e) > 0 then true else false end from GiveawayEntrantEntity e WHERE e.giveaway = (:giveaway) AND e.userId = (:userId)")
-    CompletableFuture<Boolean> asyncExistsByGiveawayAndUserId(@NonNull @Param("giveaway") GiveawayEntity giveaway,
-        @NonNull @Param("userId") String userId);
+    boolean existsByGiveawayAndUserId(GiveawayEntity giveaway, long userId);
 
     @Query("SELECT e FROM GiveawayEntrantEntity e WHERE e.userId = (:user) AND e.giveaway.guildId = (:guild)")
-    List<GiveawayEntrantEntity> findAllByUserInGuild(@Param("user") String user, @Param("guild") String guild);
+    List<GiveawayEntrantEntity> findAllByUserInGuild(@Param("user") long user, @Param("guild") long guild);
 }
@@ -0,0 +1,63 @@
+package com.mrkirby153.snowsgivingbot.entity.repo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom JDBC-backed operations on the entrants table
+ */
+public interface EntrantRepositoryCustom {
+
+    /**
+     * Inserts the provided users into a giveaway using multi-row inserts. Users that have already
+     * entered the giveaway are skipped. New entrants are given the giveaway's next entry numbers
+     *
+     * @param giveawayId The id of the giveaway
+     * @param userIds    The ids of the users to insert
+     *
+     * @return For each user, in order, true if they were newly entered into the giveaway
+     */
+    boolean[] batchInsert(long giveawayId, List<Long> userIds);
+
+    /**
+     * Inserts the user into a giveaway if they have not already entered it
+     *
+     * @param giveawayId The id of the giveaway
+     * @param userId     The id of the user
+     *
+     * @return True if the user was newly entered, false if they had already entered
+     */
+    boolean insertIfAbsent(long giveawayId, long userId);
+
+    /**
+     * Streams the ids of all users that have entered a giveaway into a primitive array
+     *
+     * @param giveawayId The id of the giveaway
+     *
+     * @return The ids of the entrants, ordered by id so seeded draws are reproducible
+     */
+    long[] getEntrantIds(long giveawayId);
+
+    /**
+     * Gets the ids of the entrants with the provided entry numbers. Entry numbers are assigned
+     * densely per giveaway, starting at 1, so this is a single index range lookup
+     *
+     * @param giveawayId   The id of the giveaway
+     * @param entryNumbers The entry numbers
+     *
+     * @return The ids of the entrants, keyed by entry number. Numbers without an entrant are
+     * missing
+     */
+    Map<Long, Long> getEntrantIdsAt(long giveawayId, Collection<Long> entryNumbers);
+
+    /**
+     * Gets the highest entry number assigned in the giveaway. This reads the giveaway's entry
+     * counter, so it does not scan its entrants
+     *
+     * @param giveawayId The id of the giveaway
+     *
+     * @return The highest entry number, or 0 if nobody has entered
+     */
+    long getLastEntryNumber(long giveawayId);
+}
@@ -0,0 +1,231 @@
+package com.mrkirby153.snowsgivingbot.entity.repo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@RequiredArgsConstructor
+public class EntrantRepositoryCustomImpl implements EntrantRepositoryCustom {
+
+    /**
+     * The most rows written or looked up by a single statement
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    /**
+     * Multi-row insert prefix. Rows are written without IGNORE so foreign key and truncation errors
+     * surface. A duplicate user fails the whole statement, which is then retried without the users
+     * that have already entered
+     */
+    private static final String INSERT_ENTRANTS = "INSERT INTO entrants (giveaway_id, user_id, entry_number) VALUES ";
+
+    private static final String SELECT_LAST_ENTRY_NUMBER = "SELECT last_entry_number FROM giveaways WHERE id = ?";
+
+    /**
+     * Locks the giveaway's row until the transaction ends, so writers into the same giveaway take
+     * entry numbers one at a time
+     */
+    private static final String LOCK_LAST_ENTRY_NUMBER = SELECT_LAST_ENTRY_NUMBER + " FOR UPDATE";
+
+    private static final String UPDATE_LAST_ENTRY_NUMBER = "UPDATE giveaways SET last_entry_number = ? WHERE id = ?";
+
+    /**
+     * Takes the giveaway's next entry number, locking its row until the transaction ends
+     */
+    private static final String ADD_LAST_ENTRY_NUMBER = "UPDATE giveaways SET last_entry_number = last_entry_number + ? WHERE id = ?";
+
+    /**
+     * Inserts a single entrant with the entry number just taken by {@link #ADD_LAST_ENTRY_NUMBER}
+     */
+    private static final String INSERT_NEXT_ENTRANT = "INSERT INTO entrants (giveaway_id, user_id, entry_number) SELECT id, ?, last_entry_number FROM giveaways WHERE id = ?";
+
+    private static final String SELECT_EXISTING = "SELECT user_id FROM entrants WHERE giveaway_id = ? AND user_id IN (";
+
+    private static final String SELECT_ENTRANT_IDS = "SELECT user_id FROM entrants WHERE giveaway_id = ? ORDER BY user_id";
+
+    /**
+     * Point lookups on the entrants_giveaway_entry index
+     */
+    private static final String SELECT_ENTRANTS_AT = "SELECT entry_number, user_id FROM entrants WHERE giveaway_id = ? AND entry_number IN (";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the users that have not entered yet with multi-row inserts. Each chunk holds the
+     * giveaway's row lock from taking its entry numbers until the transaction commits. Read
+     * committed isolation lets a writer see the rows of the writer that held the lock before it
+     */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public boolean[] batchInsert(long giveawayId, List<Long> userIds) {
+        boolean[] inserted = new boolean[userIds.size()];
+        for (int start = 0; start < userIds.size(); start += MAX_ROWS_PER_STATEMENT) {
+            int end = Math.min(userIds.size(), start + MAX_ROWS_PER_STATEMENT);
+            insertChunk(giveawayId, userIds.subList(start, end), inserted, start);
+        }
+        return inserted;
+    }
+
+    /**
+     * Takes the next entry number and inserts the user with a single statement. A duplicate user
+     * fails the insert, which hands the entry number back
+     */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public boolean insertIfAbsent(long giveawayId, long userId) {
+        if (jdbcTemplate.update(ADD_LAST_ENTRY_NUMBER, 1, giveawayId) == 0) {
+            throw new IllegalArgumentException("Giveaway " + giveawayId + " does not exist");
+        }
+        try {
+            return jdbcTemplate.update(INSERT_NEXT_ENTRANT, userId, giveawayId) == 1;
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(ADD_LAST_ENTRY_NUMBER, -1, giveawayId);
+            return false;
+        }
+    }
+
+    @Override
+    public long[] getEntrantIds(long giveawayId) {
+        LongArrayCollector collector = new LongArrayCollector();
+        jdbcTemplate.query(SELECT_ENTRANT_IDS, collector, giveawayId);
+        log.trace("Loaded {} entrant ids for {}", collector.size, giveawayId);
+        return Arrays.copyOf(collector.ids, collector.size);
+    }
+
+    @Override
+    public Map<Long, Long> getEntrantIdsAt(long giveawayId, Collection<Long> entryNumbers) {
+        Map<Long, Long> ids = new HashMap<>();
+        List<Long> numbers = new ArrayList<>(entryNumbers);
+        for (int start = 0; start < numbers.size(); start += MAX_ROWS_PER_STATEMENT) {
+            List<Long> chunk = numbers.subList(start,
+                Math.min(numbers.size(), start + MAX_ROWS_PER_STATEMENT));
+            jdbcTemplate.query(placeholders(SELECT_ENTRANTS_AT, "?", chunk.size()) + ")",
+                (RowCallbackHandler) rs -> ids.put(rs.getLong(1), rs.getLong(2)),
+                inArgs(giveawayId, chunk));
+        }
+        return ids;
+    }
+
+    @Override
+    public long getLastEntryNumber(long giveawayId) {
+        List<Long> last = jdbcTemplate.queryForList(SELECT_LAST_ENTRY_NUMBER, Long.class,
+            giveawayId);
+        return last.isEmpty() ? 0 : last.get(0);
+    }
+
+    /**
+     * Inserts the users in the chunk that have not already entered the giveaway. Users are only
+     * looked up if the insert hits one that has already entered. Every writer locks the
+     * giveaway's row first, so the lookup cannot race another writer
+     *
+     * @param giveawayId The id of the giveaway
+     * @param userIds    The users in the chunk
+     * @param inserted   The result array, marked for each user that was inserted
+     * @param offset     The position of the chunk's first user in the result array
+     */
+    private void insertChunk(long giveawayId, List<Long> userIds, boolean[] inserted,
+        int offset) {
+        List<Long> last = jdbcTemplate.queryForList(LOCK_LAST_ENTRY_NUMBER, Long.class,
+            giveawayId);
+        if (last.isEmpty()) {
+            throw new IllegalArgumentException("Giveaway " + giveawayId + " does not exist");
+        }
+        long lastEntryNumber = last.get(0);
+        Set<Long> toInsert = new LinkedHashSet<>(userIds);
+        try {
+            insertRows(giveawayId, lastEntryNumber, toInsert);
+        } catch (DuplicateKeyException e) {
+            log.trace("Some entrants have already entered {}, retrying without them", giveawayId);
+            toInsert.removeAll(selectExisting(giveawayId, userIds));
+            if (toInsert.isEmpty()) {
+                return;
+            }
+            insertRows(giveawayId, lastEntryNumber, toInsert);
+        }
+        jdbcTemplate.update(UPDATE_LAST_ENTRY_NUMBER, lastEntryNumber + toInsert.size(),
+            giveawayId);
+        // Only the first occurrence of a user in the batch is reported as inserted
+        for (int i = 0; i < userIds.size(); i++) {
+            inserted[offset + i] = toInsert.remove(userIds.get(i));
+        }
+    }
+
+    private void insertRows(long giveawayId, long lastEntryNumber, Set<Long> userIds) {
+        log.trace("Inserting {} entrants into {}", userIds.size(), giveawayId);
+        jdbcTemplate.update(placeholders(INSERT_ENTRANTS, "(?, ?, ?)", userIds.size()),
+            rowArgs(giveawayId, lastEntryNumber + 1, userIds));
+    }
+
+    private Set<Long> selectExisting(long giveawayId, List<Long> userIds) {
+        Set<Long> existing = new HashSet<>();
+        jdbcTemplate.query(
+            placeholders(SELECT_EXISTING, "?", userIds.size()) + ")",
+            (RowCallbackHandler) rs -> existing.add(rs.getLong(1)),
+            inArgs(giveawayId, userIds));
+        return existing;
+    }
+
+    private static Object[] inArgs(long giveawayId, List<Long> values) {
+        Object[] args = new Object[values.size() + 1];
+        args[0] = giveawayId;
+        for (int i = 0; i < values.size(); i++) {
+            args[i + 1] = values.get(i);
+        }
+        return args;
+    }
+
+    private static Object[] rowArgs(long giveawayId, long firstEntryNumber,
+        Collection<Long> userIds) {
+        Object[] args = new Object[userIds.size() * 3];
+        int i = 0;
+        long entryNumber = firstEntryNumber;
+        for (Long userId : userIds) {
+            args[i++] = giveawayId;
+            args[i++] = userId;
+            args[i++] = entryNumber++;
+        }
+        return args;
+    }
+
+    private static String placeholders(String prefix, String placeholder, int count) {
+        StringBuilder sql = new StringBuilder(prefix);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholder);
+        }
+        return sql.toString();
+    }
+
+    private static class LongArrayCollector implements RowCallbackHandler {
+
+        private long[] ids = new long[1024];
+        private int size = 0;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[size++] = rs.getLong(1);
+        }
+    }
+}
@@ -2,16 +2,19 @@ package com.mrkirby153.snowsgivingbot.entity.repo;
 
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
+import javax.transaction.Transactional;
 
 public interface GiveawayRepository extends CrudRepository<GiveawayEntity, Long> {
 
-    Optional<GiveawayEntity> findByMessageId(String messageId);
+    Optional<GiveawayEntity> findByMessageId(long messageId);
 
     List<GiveawayEntity> findAllByEndsAtBeforeAndStateIs(Timestamp timestamp, GiveawayState state);
 
@@ -19,17 +22,20 @@ public interface GiveawayRepository extends CrudRepository<GiveawayEntity, Long>
 
     long countAllByState(GiveawayState state);
 
-    List<GiveawayEntity> findAllByGuildIdAndState(String guildId, GiveawayState state);
+    @Query("SELECT e.state, COUNT(e) FROM GiveawayEntity e GROUP BY e.state")
+    List<Object[]> countAllGroupedByState();
 
-    void deleteAllByMessageId(String messageId);
+    List<GiveawayEntity> findAllByGuildIdAndState(long guildId, GiveawayState state);
 
-    List<GiveawayEntity> findAllByGuildId(String guild);
+    void deleteAllByMessageId(long messageId);
+
+    List<GiveawayEntity> findAllByGuildId(long guild);
 
     @Query("SELECT e FROM GiveawayEntity e WHERE e.guildId = (:guild) AND e.channelId IN (:channels) AND e.state = com.mrkirby153.snowsgivingbot.entity.GiveawayState.RUNNING ORDER BY e.endsAt ASC")
-    List<GiveawayEntity> getAllActiveGiveawaysInChannel(String guild, List<String> channels);
+    List<GiveawayEntity> getAllActiveGiveawaysInChannel(long guild, List<Long> channels);
 
     @Query("SELECT e FROM GiveawayEntity e WHERE e.guildId = (:guild) AND e.channelId IN (:channels) AND e.state = com.mrkirby153.snowsgivingbot.entity.GiveawayState.ENDED AND e.endsAt > (:after) ORDER BY e.endsAt DESC")
-    List<GiveawayEntity> getExpiredGiveaways(String guild, List<String> channels, Timestamp after);
+    List<GiveawayEntity> getExpiredGiveaways(long guild, List<Long> channels, Timestamp after);
 
     void getAllByVersion(long version);
 
@@ -37,4 +43,14 @@ public interface GiveawayRepository extends CrudRepository<GiveawayEntity, Long>
 
     @Query("SELECT e from GiveawayEntity e WHERE e.version < com.mrkirby153.snowsgivingbot.services.impl.GiveawayMigrationManager.LATEST_GIVEAWAY_VERSION")
     List<GiveawayEntity> getAllGiveawaysNeedingMigration();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE GiveawayEntity e SET e.entrantCount = (:count) WHERE e.id = (:id)")
+    void updateEntrantCount(@Param("id") long id, @Param("count") long count);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE GiveawayEntity e SET e.entrantCount = (:count) WHERE e.id = (:id) AND e.state = com.mrkirby153.snowsgivingbot.entity.GiveawayState.RUNNING")
+    int updateRunningEntrantCount(@Param("id") long id, @Param("count") long count);
 }
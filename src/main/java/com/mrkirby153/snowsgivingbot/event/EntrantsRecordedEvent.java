@@ -0,0 +1,20 @@
+package com.mrkirby153.snowsgivingbot.event;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Published after new entrants have been written to the database
+ */
+@Data
+public class EntrantsRecordedEvent {
+
+    private final GiveawayEntity giveaway;
+    private final List<Long> userIds;
+
+    public int getCount() {
+        return userIds.size();
+    }
+}
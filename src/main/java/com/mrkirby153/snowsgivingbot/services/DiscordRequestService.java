@@ -0,0 +1,97 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Schedules outbound discord requests so higher priority requests in a channel are not stuck
+ * behind lower priority ones in the same rate limit bucket
+ */
+public interface DiscordRequestService {
+
+    /**
+     * Queues a request
+     *
+     * @param channelId    The channel the request is sent to
+     * @param requestClass The class of the request
+     * @param action       Creates the request when it is sent. May return null to skip it
+     * @param <T>          The type of the request's result
+     *
+     * @return A future completed with the request's result
+     */
+    <T> CompletableFuture<T> submit(long channelId, RequestClass requestClass,
+        Supplier<? extends RestAction<T>> action);
+
+    /**
+     * Queues a request that supersedes any queued request with the same key. The superseded
+     * request is cancelled without being sent. The new request is sent with the higher priority
+     * of the two
+     *
+     * @param channelId    The channel the request is sent to
+     * @param requestClass The class of the request
+     * @param key          The key of the request
+     * @param action       Creates the request when it is sent. May return null to skip it
+     * @param <T>          The type of the request's result
+     *
+     * @return A future completed with the request's result
+     */
+    <T> CompletableFuture<T> submit(long channelId, RequestClass requestClass, String key,
+        Supplier<? extends RestAction<T>> action);
+
+    /**
+     * The rate limit buckets requests are sent in
+     */
+    enum Route {
+        /**
+         * Sending and editing messages
+         */
+        MESSAGES,
+
+        /**
+         * Adding reactions
+         */
+        REACTIONS
+    }
+
+    /**
+     * The class of a request, in order of priority
+     */
+    enum RequestClass {
+        /**
+         * Winner announcements
+         */
+        ANNOUNCEMENT(Route.MESSAGES),
+
+        /**
+         * Renders of a giveaway that changed state
+         */
+        STATE_RENDER(Route.MESSAGES),
+
+        /**
+         * Adding the giveaway reaction
+         */
+        REACTION(Route.REACTIONS),
+
+        /**
+         * Cosmetic renders of a giveaway
+         */
+        RENDER(Route.MESSAGES),
+
+        /**
+         * Messages in the admin log channel
+         */
+        ADMIN_LOG(Route.MESSAGES);
+
+        private final Route route;
+
+        RequestClass(Route route) {
+            this.route = route;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+
+import java.time.Duration;
+
+/**
+ * Service making sure each giveaway is ended by exactly one bot process
+ */
+public interface EndLeaseService {
+
+    /**
+     * Checks if this process runs the shard of the giveaway's guild, or if the giveaway is still
+     * running a lease ttl after it should have ended. The latter are taken over by any process, as
+     * the process running their shard has died or lost their lease
+     *
+     * @param giveaway The giveaway
+     *
+     * @return True if this process is responsible for ending the giveaway
+     */
+    boolean isOwned(GiveawayEntity giveaway);
+
+    /**
+     * Acquires the lease to end the giveaway. The lease is renewed until it is released, and
+     * expires if this process dies
+     *
+     * @param giveaway The giveaway
+     *
+     * @return True if the lease was acquired, false if another process holds it
+     */
+    boolean acquire(GiveawayEntity giveaway);
+
+    /**
+     * Releases the lease to end the giveaway
+     *
+     * @param giveaway The giveaway
+     */
+    void release(GiveawayEntity giveaway);
+
+    /**
+     * Gets how long a lease is held for without being renewed
+     *
+     * @return The lease ttl
+     */
+    Duration getTtl();
+}
@@ -0,0 +1,41 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import net.dv8tion.jda.api.entities.User;
+
+/**
+ * Service buffering giveaway entries in memory and writing them to the database in batches
+ */
+public interface EntrantBufferService {
+
+    /**
+     * Buffers an entry of the user into the provided giveaway. The entry will be persisted on the
+     * next flush of the giveaway's buffer
+     *
+     * @param giveaway The giveaway to enter
+     * @param user     The user entering the giveaway
+     *
+     * @return True if the entry was buffered, false if the user already has a pending entry
+     */
+    boolean enter(GiveawayEntity giveaway, User user);
+
+    /**
+     * Immediately persists all pending entries for the provided giveaway. Returns once the entries
+     * have been written
+     *
+     * @param giveaway The giveaway to flush
+     */
+    void flush(GiveawayEntity giveaway);
+
+    /**
+     * Persists all pending entries for all giveaways
+     */
+    void flushAll();
+
+    /**
+     * Gets the total amount of entries waiting to be persisted
+     *
+     * @return The amount of pending entries
+     */
+    long getPendingEntries();
+}
@@ -0,0 +1,24 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+
+/**
+ * Service keeping live entrant counts for running giveaways
+ */
+public interface EntrantCounterService {
+
+    /**
+     * Gets the amount of users that have entered the giveaway. Running giveaways are counted in
+     * memory, other giveaways return their persisted count
+     *
+     * @param giveaway The giveaway
+     *
+     * @return The amount of entrants
+     */
+    long getCount(GiveawayEntity giveaway);
+
+    /**
+     * Writes the counts of all running giveaways that have changed to the database
+     */
+    void persistCounts();
+}
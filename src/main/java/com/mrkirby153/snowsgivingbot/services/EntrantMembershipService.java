@@ -0,0 +1,37 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+
+/**
+ * Service keeping an in-memory index of the users that have entered running giveaways
+ */
+public interface EntrantMembershipService {
+
+    /**
+     * Checks if the user has entered the provided giveaway. Giveaways that are not running are
+     * checked against the database
+     *
+     * @param giveaway The giveaway
+     * @param userId   The id of the user
+     *
+     * @return True if the user has entered the giveaway
+     */
+    boolean isEntered(GiveawayEntity giveaway, long userId);
+
+    /**
+     * Records the user as having entered the provided giveaway
+     *
+     * @param giveaway The giveaway
+     * @param userId   The id of the user
+     *
+     * @return True if the user was not previously in the giveaway's index
+     */
+    boolean add(GiveawayEntity giveaway, long userId);
+
+    /**
+     * Drops the index for the provided giveaway
+     *
+     * @param giveaway The giveaway
+     */
+    void evict(GiveawayEntity giveaway);
+}
@@ -0,0 +1,63 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import net.dv8tion.jda.api.entities.User;
+
+/**
+ * Bounded stage between discord events and the entrant buffer. Entries are queued and processed by
+ * a fixed pool of workers
+ */
+public interface EntryIngestionService {
+
+    /**
+     * Entry time for entries whose source carries no timestamp, such as reactions found by a
+     * backfill. These are never dropped for being late
+     */
+    long UNKNOWN_ENTRY_TIME = Long.MIN_VALUE;
+
+    /**
+     * Queues an entry of the user into the giveaway. If the queue is full the configured
+     * {@link OverflowPolicy} is applied
+     *
+     * @param giveaway  The giveaway to enter
+     * @param user      The user entering the giveaway
+     * @param enteredAt When the entry was made at its source, in milliseconds. Entries made after
+     *                  the giveaway ended are dropped
+     */
+    void submit(GiveawayEntity giveaway, User user, long enteredAt);
+
+    /**
+     * Immediately processes all queued entries for the provided giveaway on the calling thread,
+     * after waiting for the workers to finish entries they have already taken
+     *
+     * @param giveaway The giveaway to drain
+     */
+    void drain(GiveawayEntity giveaway);
+
+    /**
+     * Gets the amount of entries waiting to be processed, including spilled entries
+     *
+     * @return The amount of queued entries
+     */
+    long getQueueDepth();
+
+    /**
+     * What to do with an entry when the ingestion queue is full
+     */
+    enum OverflowPolicy {
+        /**
+         * Block the submitting shard until there is room in the queue
+         */
+        BLOCK,
+
+        /**
+         * Spill the entry into an unbounded overflow buffer
+         */
+        SPILL,
+
+        /**
+         * Spill the entry and move the guild to standalone worker mode
+         */
+        STANDALONE
+    }
+}
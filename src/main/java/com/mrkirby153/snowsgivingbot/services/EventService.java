@@ -3,14 +3,14 @@ package com.mrkirby153.snowsgivingbot.services;
 import net.dv8tion.jda.api.events.GenericEvent;
 
 /**
- * JDA to spring event manager shim
+ * Dispatches JDA events to the beans listening for them
  */
 public interface EventService {
 
     /**
-     * Shim to relay a generic discord event to spring's event handling system
+     * Dispatches a discord event to all listeners of its type
      *
-     * @param event The event to relay
+     * @param event The event to dispatch
      */
     void onEvent(GenericEvent event);
 }
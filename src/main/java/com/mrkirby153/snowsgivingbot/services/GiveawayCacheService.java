@@ -0,0 +1,37 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+
+import java.util.Optional;
+
+/**
+ * Service caching giveaway entities by their id and message id
+ */
+public interface GiveawayCacheService {
+
+    /**
+     * Gets a giveaway by its id
+     *
+     * @param id The id of the giveaway
+     *
+     * @return An optional of the giveaway
+     */
+    Optional<GiveawayEntity> getById(long id);
+
+    /**
+     * Gets a giveaway by its message id
+     *
+     * @param messageId The message id of the giveaway
+     *
+     * @return An optional of the giveaway
+     */
+    Optional<GiveawayEntity> getByMessageId(long messageId);
+
+    /**
+     * Invalidates the cached copies of the provided giveaway. Should be called whenever the
+     * giveaway is modified
+     *
+     * @param giveaway The giveaway to invalidate
+     */
+    void invalidate(GiveawayEntity giveaway);
+}
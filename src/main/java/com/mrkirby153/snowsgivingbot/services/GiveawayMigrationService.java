@@ -14,7 +14,7 @@ public interface GiveawayMigrationService {
      *
      * @return The version of the giveaway
      */
-    long getVersion(String messageId);
+    long getVersion(long messageId);
 
     /**
      * Migrates the giveaway entity
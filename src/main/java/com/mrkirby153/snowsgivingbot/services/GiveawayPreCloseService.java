@@ -0,0 +1,111 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import lombok.Getter;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service preparing giveaways shortly before they end, so ending only has to merge in the entrants
+ * from the final seconds
+ */
+public interface GiveawayPreCloseService {
+
+    /**
+     * Snapshots the giveaway's entrants and pre-renders its ending message. Entrants recorded after
+     * this are collected until the giveaway ends
+     *
+     * @param giveaway The giveaway to prepare
+     */
+    void prepare(GiveawayEntity giveaway);
+
+    /**
+     * Removes and returns the giveaway's prepared end, if it was prepared
+     *
+     * @param giveaway The giveaway
+     *
+     * @return The prepared end, or empty if the giveaway has not finished preparing or was
+     * prepared for a different end time
+     */
+    Optional<PreparedEnd> take(GiveawayEntity giveaway);
+
+    /**
+     * Drops the giveaway's prepared end, if any. Used when the giveaway is rescheduled or
+     * cancelled
+     *
+     * @param giveaway The giveaway
+     */
+    void discard(GiveawayEntity giveaway);
+
+    /**
+     * A giveaway that has been prepared for ending
+     */
+    class PreparedEnd {
+
+        @Getter
+        private final TextChannel channel;
+        /**
+         * The end time the giveaway was prepared for
+         */
+        @Getter
+        private final long endsAt;
+        private final Set<Long> tail = ConcurrentHashMap.newKeySet();
+        @Getter
+        private volatile Message endingMessage;
+        private volatile long[] snapshot;
+
+        public PreparedEnd(TextChannel channel, long endsAt) {
+            this.channel = channel;
+            this.endsAt = endsAt;
+        }
+
+        /**
+         * Completes the preparation
+         *
+         * @param snapshot      The entrants at the time of preparation, sorted
+         * @param endingMessage The rendered ending message
+         */
+        public void complete(long[] snapshot, Message endingMessage) {
+            this.endingMessage = endingMessage;
+            this.snapshot = snapshot;
+        }
+
+        public boolean isComplete() {
+            return snapshot != null;
+        }
+
+        /**
+         * Records entrants that have entered since the preparation started
+         *
+         * @param userIds The ids of the entrants
+         */
+        public void addTail(Iterable<Long> userIds) {
+            userIds.forEach(tail::add);
+        }
+
+        /**
+         * Gets the sorted ids of all entrants, merging the snapshot with the entrants that entered
+         * after it was taken
+         *
+         * @return The ids of all entrants
+         */
+        public long[] getCandidates() {
+            Long[] late = tail.toArray(new Long[0]);
+            long[] candidates = Arrays.copyOf(snapshot, snapshot.length + late.length);
+            int size = snapshot.length;
+            for (Long id : late) {
+                if (Arrays.binarySearch(snapshot, id) < 0) {
+                    candidates[size++] = id;
+                }
+            }
+            candidates = Arrays.copyOf(candidates, size);
+            Arrays.sort(candidates);
+            return candidates;
+        }
+    }
+}
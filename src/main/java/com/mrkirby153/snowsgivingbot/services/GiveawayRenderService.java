@@ -0,0 +1,62 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import net.dv8tion.jda.api.entities.Message;
+
+/**
+ * Queues edits of giveaway messages. Renders of a giveaway that are still waiting are collapsed
+ * into a single edit of its latest state
+ */
+public interface GiveawayRenderService {
+
+    /**
+     * Queues a render of the giveaway's embed
+     *
+     * @param giveaway The giveaway to render
+     * @param priority The priority of the render
+     */
+    void render(GiveawayEntity giveaway, RenderPriority priority);
+
+    /**
+     * Queues an edit of the giveaway's message to an already rendered message. A later render of
+     * the giveaway replaces the message
+     *
+     * @param giveaway The giveaway to render
+     * @param message  The rendered message
+     * @param priority The priority of the render
+     */
+    void render(GiveawayEntity giveaway, Message message, RenderPriority priority);
+
+    /**
+     * Renders the giveaway's message. The last render of each giveaway is cached and reused
+     * until something it shows changes
+     *
+     * @param giveaway The giveaway to render
+     * @param entrants The giveaway's entrant count
+     *
+     * @return The rendered message
+     */
+    Message renderMessage(GiveawayEntity giveaway, long entrants);
+
+    /**
+     * Drops the giveaway's cached render
+     *
+     * @param giveaway The giveaway
+     */
+    void invalidate(GiveawayEntity giveaway);
+
+    /**
+     * The priority of a render. Higher priority renders are sent first within a channel
+     */
+    enum RenderPriority {
+        /**
+         * The giveaway changed state, for example it has started ending or has ended
+         */
+        STATE,
+
+        /**
+         * The giveaway's details or entrant count changed
+         */
+        COSMETIC
+    }
+}
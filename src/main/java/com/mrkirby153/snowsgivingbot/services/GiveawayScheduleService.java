@@ -0,0 +1,41 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+
+import java.time.Duration;
+
+/**
+ * Service ending running giveaways when their end time is reached
+ */
+public interface GiveawayScheduleService {
+
+    /**
+     * Schedules the giveaway to end at its end time, replacing any previous schedule. Giveaways
+     * that are not running are unscheduled
+     *
+     * @param giveaway The giveaway to schedule
+     */
+    void schedule(GiveawayEntity giveaway);
+
+    /**
+     * Removes the giveaway's scheduled end
+     *
+     * @param giveaway The giveaway to unschedule
+     */
+    void cancel(GiveawayEntity giveaway);
+
+    /**
+     * Schedules another attempt at ending the giveaway after the delay, replacing its current
+     * schedule. Used when the giveaway could not be ended, for example because another process
+     * holds its end lease
+     *
+     * @param giveaway The giveaway
+     * @param delay    How long to wait before trying again
+     */
+    void retry(GiveawayEntity giveaway, Duration delay);
+
+    /**
+     * Ends any running giveaways that are past their end time but were missed by the schedule
+     */
+    void reconcile();
+}
@@ -35,7 +35,7 @@ public interface GiveawayService {
      *
      * @param messageId The message id
      */
-    void deleteGiveaway(String messageId);
+    void deleteGiveaway(long messageId);
 
     /**
      * Deletes a giveaway by its message id
@@ -43,7 +43,7 @@ public interface GiveawayService {
      * @param messageId     The message id
      * @param deleteMessage If the message should be deleted from the channel
      */
-    void deleteGiveaway(String messageId, boolean deleteMessage);
+    void deleteGiveaway(long messageId, boolean deleteMessage);
 
     /**
      * Deletes a giveaway
@@ -61,7 +61,8 @@ public interface GiveawayService {
     void deleteGiveaway(GiveawayEntity entity, boolean deleteMessage);
 
     /**
-     * Picks winners for the provided giveaway
+     * Picks winners for the provided giveaway. The seed of the draw and the next candidates are
+     * stored on the giveaway for later rerolls
      *
      * @param giveaway The giveaway to determine winners for
      *
@@ -85,7 +86,22 @@ public interface GiveawayService {
      *
      * @param messageId The message id of the giveaway
      */
-    void endGiveaway(String messageId);
+    void endGiveaway(long messageId);
+
+    /**
+     * Ends the provided giveaway and announces its winners
+     *
+     * @param giveaway The giveaway to end
+     */
+    void endGiveaway(GiveawayEntity giveaway);
+
+    /**
+     * Prepares the giveaway for ending on the executor giveaways are ended on, so large snapshots
+     * don't hold up shared scheduler threads
+     *
+     * @param giveaway The giveaway to prepare
+     */
+    void prepareEnd(GiveawayEntity giveaway);
 
     /**
      * Rerolls a giveaway
@@ -93,7 +109,7 @@ public interface GiveawayService {
      * @param mid   The message id of the giveaway
      * @param users A list of winners to re-roll
      */
-    void reroll(String mid, String[] users);
+    void reroll(long mid, String[] users);
 
     /**
      * Gets all the giveaways in a guild
@@ -112,6 +128,17 @@ public interface GiveawayService {
      */
     void enterGiveaway(User user, GiveawayEntity entity);
 
+    /**
+     * Enters the given user into the provided giveaway with an entry made at the given time
+     *
+     * @param user      The user to enter into the giveaway
+     * @param entity    The giveaway to enter
+     * @param enteredAt When the entry was made, in milliseconds
+     *
+     * @see com.mrkirby153.snowsgivingbot.services.EntryIngestionService#UNKNOWN_ENTRY_TIME
+     */
+    void enterGiveaway(User user, GiveawayEntity entity, long enteredAt);
+
     /**
      * Gets the custom emote that the bot is using for giveaways
      *
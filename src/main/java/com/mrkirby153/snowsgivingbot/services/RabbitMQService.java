@@ -4,6 +4,7 @@ import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
 import net.dv8tion.jda.api.entities.Guild;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface RabbitMQService {
 
@@ -59,4 +60,14 @@ public interface RabbitMQService {
      * @return The giveaways and their queue sizes
      */
     Map<Long, Long> runningQueueSizes();
+
+    /**
+     * Gets a future completing once every entry queued for the giveaway at the time of the call
+     * has been processed
+     *
+     * @param entity The giveaway
+     *
+     * @return A future completing when the giveaway's queue has been drained
+     */
+    CompletableFuture<Void> awaitDrained(GiveawayEntity entity);
 }
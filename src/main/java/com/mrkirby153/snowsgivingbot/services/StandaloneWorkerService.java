@@ -53,6 +53,15 @@ public interface StandaloneWorkerService {
      */
     Boolean isStandalone(String id);
 
+    /**
+     * Checks if a guild is operating in standalone worker mode
+     *
+     * @param id The guild id to check
+     *
+     * @return True if the guild is in standalone worker mode
+     */
+    Boolean isStandalone(long id);
+
     /**
      * Sends a giveaway to the worker with the lowest load
      *
@@ -0,0 +1,32 @@
+package com.mrkirby153.snowsgivingbot.services;
+
+/**
+ * Service keeping bot-wide statistics in memory so they can be served without counting tables
+ */
+public interface StatisticsService {
+
+    /**
+     * Gets the amount of giveaways that have been held
+     *
+     * @return The amount of giveaways
+     */
+    long getGiveawayCount();
+
+    /**
+     * Gets the amount of entrants that have been recorded across all giveaways
+     *
+     * @return The amount of entrants
+     */
+    long getEntrantCount();
+
+    /**
+     * Recounts the statistics from the database, correcting any drift from deleted giveaways
+     */
+    void reconcile();
+
+    /**
+     * Rebuilds the running giveaway and guild gauges from the database and shard caches, correcting
+     * any missed events
+     */
+    void reconcileGauges();
+}
@@ -1,6 +1,7 @@
 package com.mrkirby153.snowsgivingbot.services.backfill;
 
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.services.EntryIngestionService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayService;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -101,7 +102,9 @@ public class BackfillTask {
                 }
                 long cnt = entered.incrementAndGet();
                 log.debug("Backfilling {} ({})", user, cnt);
-                giveawayService.enterGiveaway(user, giveaway);
+                // Reactions carry no timestamp, so backfilled entries are never dropped as late
+                giveawayService
+                    .enterGiveaway(user, giveaway, EntryIngestionService.UNKNOWN_ENTRY_TIME);
                 if (getProcessed() % 100 == 0) {
                     long toSleep = random.nextInt(100 - 50 + 1) + 50;
                     log.debug("Sleeping for {}ms to ease load", toSleep);
@@ -91,6 +91,15 @@ public class GiveawayBackfillManager implements GiveawayBackfillService {
         return getRunningGiveawayIDs().contains(giveawayEntity.getId());
     }
 
+    @Override
+    public CompletableFuture<Void> awaitBackfill(GiveawayEntity giveawayEntity) {
+        return runningTasks.stream()
+            .filter(task -> task.getGiveawayId() == giveawayEntity.getId())
+            .findFirst()
+            .map(task -> task.getFuture().handle((result, throwable) -> (Void) null))
+            .orElseGet(() -> CompletableFuture.completedFuture(null));
+    }
+
     private void runNextQueuedTask() {
         log.info("{} pending backfills remaining", pendingBackfills.size());
         if (pendingBackfills.size() == 0) {
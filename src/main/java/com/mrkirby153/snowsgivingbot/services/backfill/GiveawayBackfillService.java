@@ -4,6 +4,7 @@ import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service managing the backfill of giveaway reactions from Discord
@@ -47,4 +48,14 @@ public interface GiveawayBackfillService {
      * @return True if the giveaway is currently being backfilled
      */
     boolean isBackfilling(GiveawayEntity giveawayEntity);
+
+    /**
+     * Gets a future completing once the giveaway is no longer being backfilled. Failed backfills
+     * complete the future normally
+     *
+     * @param giveawayEntity The giveaway
+     *
+     * @return A future completing when the backfill is finished
+     */
+    CompletableFuture<Void> awaitBackfill(GiveawayEntity giveawayEntity);
 }
@@ -2,6 +2,9 @@ package com.mrkirby153.snowsgivingbot.services.impl;
 
 import com.mrkirby153.snowsgivingbot.event.AllShardsReadyEvent;
 import com.mrkirby153.snowsgivingbot.services.AdminLoggerService;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService.RequestClass;
+import com.mrkirby153.snowsgivingbot.utils.MessageChunker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -15,13 +18,20 @@ import org.springframework.stereotype.Service;
 import java.sql.Date;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AdminLoggerManager implements AdminLoggerService {
 
+    private static final String REQUEST_KEY = "admin-log";
+
     private final ShardManager shardManager;
+    private final DiscordRequestService discordRequestService;
+
+    private final Queue<String> pendingLines = new ConcurrentLinkedQueue<>();
 
     private final SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
 
@@ -42,7 +52,47 @@ public class AdminLoggerManager implements AdminLoggerService {
         if (!chan.canTalk()) {
             log.warn("Attempted to send \"{}\" to log channel {} but cannot talk", message, chan);
         }
-        chan.sendMessageFormat("[`%s`] %s", sdf.format(Date.from(Instant.now())), message).queue();
+        String timestamp = sdf.format(Date.from(Instant.now()));
+        pendingLines.add(String.format("[`%s`] %s", timestamp, message));
+        sendPending(chan);
+    }
+
+    /**
+     * Queues a message with the pending lines. It supersedes a queued message that has not been
+     * sent yet, as the lines are only taken once it is sent
+     *
+     * @param chan The log channel
+     */
+    private void sendPending(TextChannel chan) {
+        discordRequestService.submit(chan.getIdLong(), RequestClass.ADMIN_LOG, REQUEST_KEY, () -> {
+            String batch = takeBatch();
+            if (!pendingLines.isEmpty()) {
+                sendPending(chan);
+            }
+            return batch != null ? chan.sendMessage(batch) : null;
+        });
+    }
+
+    /**
+     * Takes as many pending lines as fit into a single message
+     *
+     * @return The lines, or null if there are none
+     */
+    private String takeBatch() {
+        StringBuilder batch = new StringBuilder();
+        String line;
+        while ((line = pendingLines.peek()) != null) {
+            if (batch.length() > 0
+                && batch.length() + 1 + line.length() > MessageChunker.MAX_MESSAGE_LENGTH) {
+                break;
+            }
+            pendingLines.poll();
+            if (batch.length() > 0) {
+                batch.append('\n');
+            }
+            batch.append(line, 0, Math.min(line.length(), MessageChunker.MAX_MESSAGE_LENGTH));
+        }
+        return batch.length() > 0 ? batch.toString() : null;
     }
 
     @EventListener
@@ -2,6 +2,7 @@ package com.mrkirby153.snowsgivingbot.services.impl;
 
 import com.mrkirby153.snowsgivingbot.event.AllShardsReadyEvent;
 import com.mrkirby153.snowsgivingbot.services.DiscordService;
+import com.mrkirby153.snowsgivingbot.utils.MessageChunker;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.Permission;
@@ -116,22 +117,13 @@ public class DiscordManager implements DiscordService {
     @Override
     public CompletableFuture<List<Message>> sendLongMessage(MessageChannel channel,
         String message) {
-        StringBuilder buffer = new StringBuilder(2000);
-        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        MessageChunker chunker = new MessageChunker();
         for (String line : message.split("\n")) {
-            String toAppend = String.format("%s\n", line);
-            if (toAppend.length() > 1990) {
-                throw new IllegalArgumentException(
-                    "Attempting to send a message that has a single line more than 1990 characters in length");
-            }
-            if (toAppend.length() + buffer.length() >= 1990) {
-                futures.add(channel.sendMessage(buffer.toString()).submit());
-                buffer = new StringBuilder(2000);
-            }
-            buffer.append(toAppend);
+            chunker.appendLine(line);
         }
-        if (buffer.length() > 0) {
-            futures.add(channel.sendMessage(buffer.toString()).submit());
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (String chunk : chunker.build()) {
+            futures.add(channel.sendMessage(chunk).submit());
         }
         CompletableFuture<List<Message>> future = new CompletableFuture<>();
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
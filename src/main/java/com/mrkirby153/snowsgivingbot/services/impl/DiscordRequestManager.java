@@ -0,0 +1,260 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.events.http.HttpRequestEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+
+/**
+ * Sends one request at a time per channel and route, picking the highest priority queued request
+ * each time one completes. JDA still handles the rate limits themselves. Buckets are dropped once
+ * they have nothing left to send.
+ * <p>
+ * Once a request completes, the next one is created and sent on this manager's executor rather than
+ * JDA's callback thread, as creating a request may render a message or hit the database
+ */
+@Service
+@Slf4j
+public class DiscordRequestManager implements DiscordRequestService {
+
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+
+    private final Map<Route, Map<Long, Bucket>> buckets = new EnumMap<>(Route.class);
+
+    private final Map<RequestClass, AtomicLong> queueDepths = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Timer> queueLatencyTimers = new EnumMap<>(
+        RequestClass.class);
+    private final Map<RequestClass, Counter> supersededCounters = new EnumMap<>(
+        RequestClass.class);
+
+    public DiscordRequestManager(MeterRegistry meterRegistry,
+        @Value("${bot.requests.threads:2}") int threads) {
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("discord-requests-%d").setDaemon(true)
+                .build());
+        for (Route route : Route.values()) {
+            buckets.put(route, new ConcurrentHashMap<>());
+        }
+        for (RequestClass requestClass : RequestClass.values()) {
+            String name = requestClass.name();
+            queueDepths.put(requestClass, meterRegistry
+                .gauge("discord_request_queue_depth",
+                    Tags.of("class", name), new AtomicLong(0)));
+            queueLatencyTimers.put(requestClass, Timer.builder("discord_request_queue_latency")
+                .tag("class", name).publishPercentileHistogram().register(meterRegistry));
+            supersededCounters.put(requestClass,
+                meterRegistry.counter("discord_requests_superseded", "class", name));
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(long channelId, RequestClass requestClass,
+        Supplier<? extends RestAction<T>> action) {
+        return submit(channelId, requestClass, null, action);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(long channelId, RequestClass requestClass, String key,
+        Supplier<? extends RestAction<T>> action) {
+        Map<Long, Bucket> routeBuckets = buckets.get(requestClass.getRoute());
+        while (true) {
+            Bucket bucket = routeBuckets
+                .computeIfAbsent(channelId, id -> new Bucket(routeBuckets, id));
+            Request<T> request;
+            Request<?> next;
+            synchronized (bucket) {
+                if (bucket.removed) {
+                    // The bucket went idle after it was looked up
+                    continue;
+                }
+                RequestClass queuedClass = requestClass;
+                Request<?> superseded = key != null ? bucket.keyed.get(key) : null;
+                if (superseded != null) {
+                    log.trace("{} superseded a queued request in {}", key, channelId);
+                    bucket.queues.get(superseded.requestClass).remove(superseded);
+                    queueDepths.get(superseded.requestClass).decrementAndGet();
+                    supersededCounters.get(superseded.requestClass).increment();
+                    superseded.future.cancel(false);
+                    if (superseded.requestClass.compareTo(queuedClass) < 0) {
+                        queuedClass = superseded.requestClass;
+                    }
+                }
+                request = new Request<>(queuedClass, key, action);
+                if (key != null) {
+                    bucket.keyed.put(key, request);
+                }
+                bucket.queues.get(queuedClass).add(request);
+                queueDepths.get(queuedClass).incrementAndGet();
+                if (bucket.inFlight) {
+                    return request.future;
+                }
+                bucket.inFlight = true;
+                next = bucket.poll();
+            }
+            send(bucket, next);
+            return request.future;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @EventListener
+    public void onHttpRequest(HttpRequestEvent event) {
+        if (event.isRateLimit()) {
+            String route = event.getRoute().getBaseRoute().getRoute();
+            log.debug("Hit a rate limit on {}", route);
+            meterRegistry.counter("discord_rate_limit_hits", "route", route).increment();
+        }
+    }
+
+    private void send(Bucket bucket, Request<?> request) {
+        while (request != null) {
+            queueLatencyTimers.get(request.requestClass)
+                .record(System.nanoTime() - request.queuedAt, TimeUnit.NANOSECONDS);
+            if (request.send(() -> sendNext(bucket))) {
+                return;
+            }
+            request = next(bucket);
+        }
+    }
+
+    /**
+     * Sends the bucket's next request on the executor. Called from JDA's callback thread once a
+     * request has completed
+     */
+    private void sendNext(Bucket bucket) {
+        try {
+            executor.execute(() -> send(bucket, next(bucket)));
+        } catch (RejectedExecutionException e) {
+            log.debug("Not sending further requests in {}, shutting down", bucket.channelId);
+        }
+    }
+
+    private Request<?> next(Bucket bucket) {
+        synchronized (bucket) {
+            Request<?> next = bucket.poll();
+            if (next == null) {
+                bucket.inFlight = false;
+                bucket.removed = true;
+                bucket.routeBuckets.remove(bucket.channelId, bucket);
+            }
+            return next;
+        }
+    }
+
+    private class Bucket {
+
+        private final Map<Long, Bucket> routeBuckets;
+        private final long channelId;
+        private final Map<RequestClass, Deque<Request<?>>> queues = new EnumMap<>(
+            RequestClass.class);
+        private final Map<String, Request<?>> keyed = new HashMap<>();
+        private boolean inFlight = false;
+        /**
+         * If the bucket went idle and was removed from its route. Requests must be queued in a
+         * new bucket instead
+         */
+        private boolean removed = false;
+
+        private Bucket(Map<Long, Bucket> routeBuckets, long channelId) {
+            this.routeBuckets = routeBuckets;
+            this.channelId = channelId;
+            for (RequestClass requestClass : RequestClass.values()) {
+                queues.put(requestClass, new ArrayDeque<>());
+            }
+        }
+
+        /**
+         * Removes the highest priority request from the bucket. Must be called while holding the
+         * bucket's lock
+         *
+         * @return The request, or null if the bucket is empty
+         */
+        private Request<?> poll() {
+            for (Deque<Request<?>> requests : queues.values()) {
+                Request<?> request = requests.poll();
+                if (request != null) {
+                    queueDepths.get(request.requestClass).decrementAndGet();
+                    if (request.key != null) {
+                        keyed.remove(request.key, request);
+                    }
+                    return request;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Request<T> {
+
+        private final RequestClass requestClass;
+        private final String key;
+        private final Supplier<? extends RestAction<T>> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+
+        private Request(RequestClass requestClass, String key,
+            Supplier<? extends RestAction<T>> action) {
+            this.requestClass = requestClass;
+            this.key = key;
+            this.action = action;
+        }
+
+        /**
+         * Sends the request
+         *
+         * @param onComplete Run once the request has completed
+         *
+         * @return True if the request was sent, false if it completed without being sent
+         */
+        private boolean send(Runnable onComplete) {
+            RestAction<T> restAction;
+            try {
+                restAction = action.get();
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                return false;
+            }
+            if (restAction == null) {
+                future.complete(null);
+                return false;
+            }
+            restAction.queue(result -> {
+                future.complete(result);
+                onComplete.run();
+            }, throwable -> {
+                future.completeExceptionally(throwable);
+                onComplete.run();
+            });
+            return true;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.services.EndLeaseService;
+import com.mrkirby153.snowsgivingbot.services.lease.LeaseProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class EndLeaseManager implements EndLeaseService {
+
+    private static final String LEASE_KEY_FORMAT = "giveaway:%d:end-lease";
+
+    private final ShardManager shardManager;
+    private final LeaseProvider leaseProvider;
+    private final String owner = UUID.randomUUID().toString();
+    private final Duration ttl;
+
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+
+    private final Timer acquireTimer;
+    private final Counter acquiredCounter;
+    private final Counter contendedCounter;
+    private final Counter lostCounter;
+
+    public EndLeaseManager(ShardManager shardManager, LeaseProvider leaseProvider,
+        @Value("${bot.leases.ttl:60}") long ttl, MeterRegistry meterRegistry) {
+        this.shardManager = shardManager;
+        this.leaseProvider = leaseProvider;
+        this.ttl = Duration.ofSeconds(ttl);
+
+        this.acquireTimer = meterRegistry.timer("end_lease_acquire_time");
+        this.acquiredCounter = meterRegistry.counter("end_lease_acquire", "result", "acquired");
+        this.contendedCounter = meterRegistry.counter("end_lease_acquire", "result", "contended");
+        this.lostCounter = meterRegistry.counter("end_lease_lost");
+        Gauge.builder("end_leases_held", held, Set::size).register(meterRegistry);
+    }
+
+    @Override
+    public boolean isOwned(GiveawayEntity giveaway) {
+        int total = shardManager.getShardsTotal();
+        int shard = (int) ((giveaway.getGuildId() >> 22) % total);
+        if (shardManager.getShardById(shard) != null) {
+            return true;
+        }
+        // Still running a lease ttl after its end, so the process running its shard is gone or
+        // its lease has expired. Whichever process acquires the lease ends it
+        return giveaway.getEndsAt().getTime() + ttl.toMillis() < System.currentTimeMillis();
+    }
+
+    @Override
+    public boolean acquire(GiveawayEntity giveaway) {
+        String key = getKey(giveaway);
+        boolean acquired = acquireTimer.record(() -> leaseProvider.tryAcquire(key, owner, ttl));
+        if (acquired) {
+            held.add(key);
+            acquiredCounter.increment();
+        } else {
+            log.debug("The end lease for {} is held by another process", giveaway);
+            contendedCounter.increment();
+        }
+        return acquired;
+    }
+
+    @Override
+    public void release(GiveawayEntity giveaway) {
+        String key = getKey(giveaway);
+        if (held.remove(key)) {
+            leaseProvider.release(key, owner);
+        }
+    }
+
+    @Override
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    @Scheduled(fixedDelayString = "${bot.leases.renew-interval:20000}")
+    public void renewLeases() {
+        held.forEach(key -> {
+            if (!leaseProvider.renew(key, owner, ttl)) {
+                log.warn("Lost end lease {}", key);
+                held.remove(key);
+                lostCounter.increment();
+            }
+        });
+    }
+
+    private String getKey(GiveawayEntity giveaway) {
+        return String.format(LEASE_KEY_FORMAT, giveaway.getId());
+    }
+}
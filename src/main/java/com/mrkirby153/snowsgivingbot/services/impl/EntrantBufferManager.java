@@ -0,0 +1,260 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.google.common.util.concurrent.Striped;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
+import com.mrkirby153.snowsgivingbot.event.EntrantsRecordedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEnterEvent;
+import com.mrkirby153.snowsgivingbot.services.EntrantBufferService;
+import com.mrkirby153.snowsgivingbot.services.EntrantMembershipService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.PreDestroy;
+
+@Service
+@Slf4j
+public class EntrantBufferManager implements EntrantBufferService {
+
+    /**
+     * The longest a failed flush will back off before it is retried
+     */
+    private static final long MAX_RETRY_DELAY = 30_000;
+
+    private final EntrantRepository entrantRepository;
+    private final EntrantMembershipService entrantMembershipService;
+    private final ApplicationEventPublisher publisher;
+    private final int batchSize;
+    private final long flushInterval;
+    private final int maxFlushAttempts;
+
+    private final Map<Long, PendingEntries> pending = new ConcurrentHashMap<>();
+    private final Striped<Lock> flushLocks = Striped.lock(64);
+
+    private final AtomicLong bufferDepth;
+    private final Counter giveawayEntrantsCounter;
+    private final Counter flushedEntrantsCounter;
+    private final Counter flushFailedCounter;
+    private final Counter droppedEntrantsCounter;
+    private final Timer flushTimer;
+
+    public EntrantBufferManager(EntrantRepository entrantRepository,
+        EntrantMembershipService entrantMembershipService, ApplicationEventPublisher publisher,
+        @Value("${bot.entrants.batch-size:500}") int batchSize,
+        @Value("${bot.entrants.flush-interval:50}") long flushInterval,
+        @Value("${bot.entrants.max-flush-attempts:10}") int maxFlushAttempts,
+        MeterRegistry meterRegistry) {
+        this.entrantRepository = entrantRepository;
+        this.entrantMembershipService = entrantMembershipService;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxFlushAttempts = maxFlushAttempts;
+
+        this.bufferDepth = meterRegistry.gauge("entrant_buffer_depth", new AtomicLong(0));
+        this.giveawayEntrantsCounter = meterRegistry.counter("giveaway_entrants");
+        this.flushedEntrantsCounter = meterRegistry.counter("entrant_buffer_flushed");
+        this.flushFailedCounter = meterRegistry.counter("entrant_buffer_flush_failed");
+        this.droppedEntrantsCounter = meterRegistry.counter("entrant_buffer_dropped");
+        this.flushTimer = meterRegistry.timer("entrant_buffer_flush");
+    }
+
+    @Override
+    public boolean enter(GiveawayEntity giveaway, User user) {
+        int size = buffer(giveaway, user);
+        if (size == -1) {
+            return false;
+        }
+        if (size >= batchSize) {
+            log.debug("Buffer for {} is full, flushing", giveaway);
+            flush(giveaway.getId(), false);
+        }
+        return true;
+    }
+
+    @Override
+    public void flush(GiveawayEntity giveaway) {
+        flush(giveaway.getId(), true);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bot.entrants.flush-interval:50}")
+    public void flushAll() {
+        pending.keySet().forEach(id -> flush(id, false));
+    }
+
+    /**
+     * Writes everything still buffered before shutting down, ignoring any retry backoff
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing {} pending entries before shutdown", bufferDepth.get());
+        pending.keySet().forEach(id -> flush(id, true));
+    }
+
+    @Override
+    public long getPendingEntries() {
+        return bufferDepth.get();
+    }
+
+    /**
+     * Adds the user to the giveaway's pending entries
+     *
+     * @param giveaway The giveaway
+     * @param user     The user
+     *
+     * @return The new size of the giveaway's buffer, or -1 if the user was already buffered
+     */
+    private int buffer(GiveawayEntity giveaway, User user) {
+        while (true) {
+            PendingEntries entries = pending
+                .computeIfAbsent(giveaway.getId(), id -> new PendingEntries(giveaway));
+            synchronized (entries) {
+                if (entries.drained) {
+                    // The buffer was flushed out from under us, try again with a fresh one
+                    continue;
+                }
+                if (entries.users.putIfAbsent(user.getIdLong(), user) != null) {
+                    return -1;
+                }
+                bufferDepth.incrementAndGet();
+                return entries.users.size();
+            }
+        }
+    }
+
+    /**
+     * Re-buffers entries that could not be written. The giveaway's buffer will not be flushed again
+     * until the retry time has passed, unless the flush is forced
+     *
+     * @param giveaway The giveaway
+     * @param users    The users to re-buffer
+     * @param attempts The amount of times writing these users has failed
+     * @param retryAt  The earliest time, in milliseconds, the buffer should be flushed again
+     */
+    private void requeue(GiveawayEntity giveaway, Map<Long, User> users, int attempts,
+        long retryAt) {
+        while (true) {
+            PendingEntries entries = pending
+                .computeIfAbsent(giveaway.getId(), id -> new PendingEntries(giveaway));
+            synchronized (entries) {
+                if (entries.drained) {
+                    continue;
+                }
+                users.forEach((id, user) -> {
+                    if (entries.users.putIfAbsent(id, user) == null) {
+                        bufferDepth.incrementAndGet();
+                    }
+                });
+                entries.attempts = Math.max(entries.attempts, attempts);
+                entries.retryAt = Math.max(entries.retryAt, retryAt);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Flushes the giveaway's buffer
+     *
+     * @param giveawayId The id of the giveaway
+     * @param force      If the buffer should be flushed even if a previous failure is backing off
+     */
+    private void flush(long giveawayId, boolean force) {
+        Lock lock = flushLocks.get(giveawayId);
+        lock.lock();
+        try {
+            PendingEntries entries = pending.get(giveawayId);
+            if (entries == null) {
+                return;
+            }
+            Map<Long, User> users;
+            int attempts;
+            synchronized (entries) {
+                if (!force && entries.retryAt > System.currentTimeMillis()) {
+                    return;
+                }
+                pending.remove(giveawayId, entries);
+                entries.drained = true;
+                users = entries.users;
+                attempts = entries.attempts;
+            }
+            bufferDepth.addAndGet(-users.size());
+            flushTimer.record(() -> persist(entries.giveaway, users, attempts));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the provided users to the database. Users that have already entered are skipped by
+     * the database
+     *
+     * @param giveaway The giveaway the users are entering
+     * @param users    The users to write
+     * @param attempts The amount of times writing these users has already failed
+     */
+    private void persist(GiveawayEntity giveaway, Map<Long, User> users, int attempts) {
+        try {
+            log.debug("Flushing {} entrants into {}", users.size(), giveaway);
+            List<Long> userIds = new ArrayList<>(users.keySet());
+            // A lone entry, the common case outside of large giveaways, takes the single row insert
+            boolean[] inserted = userIds.size() == 1
+                ? new boolean[]{entrantRepository.insertIfAbsent(giveaway.getId(), userIds.get(0))}
+                : entrantRepository.batchInsert(giveaway.getId(), userIds);
+            List<Long> recorded = new ArrayList<>();
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i]) {
+                    recorded.add(userIds.get(i));
+                    entrantMembershipService.add(giveaway, userIds.get(i));
+                    publisher.publishEvent(
+                        new GiveawayEnterEvent(users.get(userIds.get(i)), giveaway));
+                }
+            }
+            flushedEntrantsCounter.increment(users.size());
+            giveawayEntrantsCounter.increment(recorded.size());
+            if (!recorded.isEmpty()) {
+                publisher.publishEvent(new EntrantsRecordedEvent(giveaway, recorded));
+            }
+        } catch (Exception e) {
+            flushFailedCounter.increment();
+            int failures = attempts + 1;
+            if (failures >= maxFlushAttempts) {
+                log.error("Could not flush {} entrants into {} after {} attempts. Dropping them",
+                    users.size(), giveaway, failures, e);
+                droppedEntrantsCounter.increment(users.size());
+                return;
+            }
+            long delay = Math.min(MAX_RETRY_DELAY, flushInterval << Math.min(failures, 20));
+            log.warn("Could not flush {} entrants into {}. Retrying in {}ms", users.size(),
+                giveaway, delay, e);
+            requeue(giveaway, users, failures, System.currentTimeMillis() + delay);
+        }
+    }
+
+    private static class PendingEntries {
+
+        private final GiveawayEntity giveaway;
+        private final Map<Long, User> users = new HashMap<>();
+        private boolean drained = false;
+        private int attempts = 0;
+        private long retryAt = 0;
+
+        private PendingEntries(GiveawayEntity giveaway) {
+            this.giveaway = giveaway;
+        }
+    }
+}
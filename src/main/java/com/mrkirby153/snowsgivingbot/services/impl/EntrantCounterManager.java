@@ -0,0 +1,114 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
+import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.event.AllShardsReadyEvent;
+import com.mrkirby153.snowsgivingbot.event.EntrantsRecordedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.EntrantCounterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EntrantCounterManager implements EntrantCounterService {
+
+    private final EntrantRepository entrantRepository;
+    private final GiveawayRepository giveawayRepository;
+
+    private final Map<Long, EntrantCount> counts = new ConcurrentHashMap<>();
+
+    @Override
+    public long getCount(GiveawayEntity giveaway) {
+        if (giveaway.getState() != GiveawayState.RUNNING) {
+            EntrantCount count = counts.get(giveaway.getId());
+            return count != null && count.seeded ? count.count.get() : giveaway.getEntrantCount();
+        }
+        // The placeholder is registered before counting so entrants recorded while the count
+        // runs are not lost
+        EntrantCount count = counts.computeIfAbsent(giveaway.getId(), id -> new EntrantCount());
+        if (!count.seeded) {
+            synchronized (count) {
+                if (!count.seeded) {
+                    log.debug("Seeding entrant count for {}", giveaway);
+                    count.count.addAndGet(entrantRepository.countByGiveaway(giveaway));
+                    count.seeded = true;
+                }
+            }
+        }
+        return count.count.get();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bot.entrants.count-persist-interval:30000}")
+    public void persistCounts() {
+        counts.forEach((id, count) -> {
+            if (!count.seeded) {
+                return;
+            }
+            long current = count.count.get();
+            if (current == count.persisted) {
+                return;
+            }
+            log.trace("Persisting entrant count of {} for {}", current, id);
+            // Only running giveaways are updated, so an ended giveaway's exact count is never
+            // overwritten by a count taken before it ended
+            if (giveawayRepository.updateRunningEntrantCount(id, current) == 0) {
+                counts.remove(id, count);
+                return;
+            }
+            count.persisted = current;
+        });
+    }
+
+    @EventListener
+    public void onEntrantsRecorded(EntrantsRecordedEvent event) {
+        // Counts that have not been requested yet will pick these entrants up from the database.
+        // Placeholders still being seeded accumulate them on top of the seeded count
+        EntrantCount count = counts.get(event.getGiveaway().getId());
+        if (count != null) {
+            count.count.addAndGet(event.getCount());
+        }
+    }
+
+    @EventListener
+    public void onGiveawayStart(GiveawayStartedEvent event) {
+        EntrantCount count = new EntrantCount();
+        count.seeded = true;
+        counts.putIfAbsent(event.getGiveaway().getId(), count);
+    }
+
+    @EventListener
+    public void onGiveawayEnd(GiveawayEndedEvent event) {
+        GiveawayEntity giveaway = event.getGiveaway();
+        counts.remove(giveaway.getId());
+        // Write the exact count now that no more entrants can be recorded
+        giveawayRepository.updateEntrantCount(giveaway.getId(),
+            entrantRepository.countByGiveaway(giveaway));
+    }
+
+    @EventListener
+    @Async
+    public void onReady(AllShardsReadyEvent event) {
+        giveawayRepository.findAllByState(GiveawayState.RUNNING).forEach(this::getCount);
+    }
+
+    private static class EntrantCount {
+
+        private final AtomicLong count = new AtomicLong(0);
+        private volatile long persisted = -1;
+        private volatile boolean seeded = false;
+    }
+}
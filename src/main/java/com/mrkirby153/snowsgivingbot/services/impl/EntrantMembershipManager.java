@@ -0,0 +1,177 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
+import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.event.AllShardsReadyEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
+import com.mrkirby153.snowsgivingbot.services.EntrantMembershipService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+@Slf4j
+public class EntrantMembershipManager implements EntrantMembershipService {
+
+    private final EntrantRepository entrantRepository;
+    private final GiveawayRepository giveawayRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Membership> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Giveaways that have ended recently. Stale entities may still claim to be running, these
+     * should not have their index rebuilt
+     */
+    private final Cache<Long, Boolean> recentlyEnded = CacheBuilder.newBuilder()
+        .expireAfterWrite(1, TimeUnit.HOURS).build();
+
+    public EntrantMembershipManager(EntrantRepository entrantRepository,
+        GiveawayRepository giveawayRepository, MeterRegistry meterRegistry) {
+        this.entrantRepository = entrantRepository;
+        this.giveawayRepository = giveawayRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean isEntered(GiveawayEntity giveaway, long userId) {
+        Membership membership = getMembership(giveaway);
+        if (membership == null) {
+            return entrantRepository.existsByGiveawayAndUserId(giveaway, userId);
+        }
+        return membership.contains(userId);
+    }
+
+    @Override
+    public boolean add(GiveawayEntity giveaway, long userId) {
+        Membership membership = getMembership(giveaway);
+        if (membership == null) {
+            return !entrantRepository.existsByGiveawayAndUserId(giveaway, userId);
+        }
+        return membership.add(userId);
+    }
+
+    @Override
+    public void evict(GiveawayEntity giveaway) {
+        recentlyEnded.put(giveaway.getId(), true);
+        Membership membership = indexes.remove(giveaway.getId());
+        if (membership != null) {
+            log.debug("Evicting membership index for {}", giveaway);
+            meterRegistry.remove(membership.gauge);
+        }
+    }
+
+    @EventListener
+    public void onGiveawayEnd(GiveawayEndedEvent event) {
+        evict(event.getGiveaway());
+    }
+
+    @EventListener
+    @Async
+    public void onReady(AllShardsReadyEvent event) {
+        List<GiveawayEntity> running = giveawayRepository.findAllByState(GiveawayState.RUNNING);
+        log.info("Warming membership index for {} running giveaways", running.size());
+        running.forEach(this::getMembership);
+    }
+
+    /**
+     * Gets the membership index for the provided giveaway, loading it from the database if it has
+     * not been loaded yet
+     *
+     * @param giveaway The giveaway
+     *
+     * @return The index, or null if the giveaway is not running
+     */
+    private Membership getMembership(GiveawayEntity giveaway) {
+        if (giveaway.getState() != GiveawayState.RUNNING
+            || recentlyEnded.getIfPresent(giveaway.getId()) != null) {
+            return null;
+        }
+        Membership membership = indexes
+            .computeIfAbsent(giveaway.getId(), id -> new Membership(giveaway));
+        membership.load(giveaway);
+        return membership;
+    }
+
+    private class Membership {
+
+        private final Roaring64NavigableMap bitmap = new Roaring64NavigableMap();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Gauge gauge;
+        private volatile boolean loaded = false;
+
+        private Membership(GiveawayEntity giveaway) {
+            this.gauge = Gauge.builder("giveaway_membership_bytes", this, Membership::sizeInBytes)
+                .tag("id", String.valueOf(giveaway.getId()))
+                .register(meterRegistry);
+        }
+
+        private void load(GiveawayEntity giveaway) {
+            if (loaded) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+                long[] ids = entrantRepository.getEntrantIds(giveaway.getId());
+                log.debug("Loading {} entrants into the membership index for {}", ids.length,
+                    giveaway);
+                for (long id : ids) {
+                    bitmap.addLong(id);
+                }
+                bitmap.runOptimize();
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private boolean contains(long userId) {
+            lock.readLock().lock();
+            try {
+                return bitmap.contains(userId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private boolean add(long userId) {
+            lock.writeLock().lock();
+            try {
+                if (bitmap.contains(userId)) {
+                    return false;
+                }
+                bitmap.addLong(userId);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private double sizeInBytes() {
+            lock.readLock().lock();
+            try {
+                return bitmap.getLongSizeInBytes();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.utils.EntryPayload;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Batches the entries delivered from a single entrant queue, recording them together and
+ * acknowledging all of their deliveries at once.
+ * <p>
+ * A batch is flushed once it holds the batch size worth of entries, or as many deliveries as the
+ * prefetch count lets the broker send before they are acknowledged. Partial batches are flushed
+ * after the batch wait on the flush executor. Entries are recorded outside the batch's lock, so
+ * deliveries keep being batched while a flush is running
+ */
+@Slf4j
+class EntryBatcher {
+
+    private final String name;
+    private final int batchSize;
+    private final long batchWait;
+    private final int maxAttempts;
+    private final ScheduledExecutorService flushExecutor;
+    private final Consumer<List<Long>> recorder;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+    private final Counter droppedCounter;
+
+    /**
+     * Held while a batch is recorded and acknowledged. Deliveries are acknowledged up to the
+     * batch's last delivery tag, so batches must be acknowledged in the order they were taken
+     */
+    private final Object flushLock = new Object();
+
+    private List<Long> userIds = new ArrayList<>();
+    private int deliveries = 0;
+    private long deliveryTag;
+    private Channel channel;
+    private ScheduledFuture<?> flushTask;
+
+    private volatile int maxDeliveries = Integer.MAX_VALUE;
+
+    /**
+     * The amount of flushes that have failed in a row. Guarded by the flush lock
+     */
+    private int failures = 0;
+
+    /**
+     * Creates a new batcher
+     *
+     * @param name          The name of the batcher, used in logs
+     * @param batchSize     The amount of entries in a full batch
+     * @param batchWait     How long in milliseconds a partial batch waits before it is flushed
+     * @param maxAttempts   How many times a batch is recorded before its deliveries are rejected
+     *                      without being requeued
+     * @param flushExecutor The executor partial batches are flushed on
+     * @param recorder      Records the entries of a batch
+     * @param meterRegistry The registry to report batch metrics to
+     */
+    EntryBatcher(String name, int batchSize, long batchWait, int maxAttempts,
+        ScheduledExecutorService flushExecutor, Consumer<List<Long>> recorder,
+        MeterRegistry meterRegistry) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.batchWait = batchWait;
+        this.maxAttempts = maxAttempts;
+        this.flushExecutor = flushExecutor;
+        this.recorder = recorder;
+
+        this.batchSizeSummary = meterRegistry.summary("rabbit_entry_batch_size");
+        this.flushTimer = meterRegistry.timer("rabbit_entry_batch_flush");
+        this.droppedCounter = meterRegistry.counter("rabbit_entries_dropped");
+    }
+
+    /**
+     * Sets the most deliveries a batch holds before it is flushed. This has to be at most the
+     * prefetch count, as the broker stops delivering once that many are unacknowledged
+     *
+     * @param maxDeliveries The most deliveries in a batch
+     */
+    void setMaxDeliveries(int maxDeliveries) {
+        this.maxDeliveries = Math.max(1, maxDeliveries);
+    }
+
+    /**
+     * Adds the entries in the payload to the batch
+     *
+     * @param channel     The channel the payload was delivered on
+     * @param deliveryTag The delivery tag of the payload
+     * @param body        The entry payload
+     *
+     * @return The amount of entries in the payload
+     *
+     * @throws IllegalArgumentException If the payload is malformed
+     */
+    int add(Channel channel, long deliveryTag, byte[] body) {
+        int entries;
+        boolean full;
+        synchronized (this) {
+            entries = EntryPayload.decode(body, userIds::add);
+            full = track(channel, deliveryTag);
+        }
+        if (full) {
+            flush();
+        }
+        return entries;
+    }
+
+    /**
+     * Adds a delivery without entries to the batch, so it is acknowledged along with it
+     *
+     * @param channel     The channel the delivery was made on
+     * @param deliveryTag The delivery tag
+     */
+    void skip(Channel channel, long deliveryTag) {
+        boolean full;
+        synchronized (this) {
+            full = track(channel, deliveryTag);
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Records the batch's entries and acknowledges its deliveries
+     */
+    void flush() {
+        synchronized (flushLock) {
+            List<Long> taken;
+            Channel takenChannel;
+            long takenTag;
+            synchronized (this) {
+                if (flushTask != null) {
+                    flushTask.cancel(false);
+                    flushTask = null;
+                }
+                if (deliveries == 0) {
+                    return;
+                }
+                taken = userIds;
+                takenChannel = channel;
+                takenTag = deliveryTag;
+                userIds = new ArrayList<>();
+                deliveries = 0;
+            }
+            record(taken, takenChannel, takenTag);
+        }
+    }
+
+    /**
+     * Tracks a delivery in the batch. Must be called while holding the batch's lock
+     *
+     * @return True if the batch is full and has to be flushed
+     */
+    private boolean track(Channel channel, long deliveryTag) {
+        this.channel = channel;
+        this.deliveryTag = deliveryTag;
+        deliveries++;
+        if (userIds.size() >= batchSize || deliveries >= maxDeliveries) {
+            return true;
+        }
+        if (flushTask == null) {
+            flushTask = flushExecutor.schedule(this::flush, batchWait, TimeUnit.MILLISECONDS);
+        }
+        return false;
+    }
+
+    private void record(List<Long> taken, Channel channel, long deliveryTag) {
+        try {
+            if (!taken.isEmpty()) {
+                batchSizeSummary.record(taken.size());
+                flushTimer.record(() -> recorder.accept(taken));
+            }
+            channel.basicAck(deliveryTag, true);
+            failures = 0;
+        } catch (Exception e) {
+            // Requeued deliveries are redelivered right away, so a batch that can never be
+            // recorded would otherwise be retried forever
+            boolean requeue = ++failures < maxAttempts;
+            if (requeue) {
+                log.error("Error processing {} entries for {}. Requeueing", taken.size(), name, e);
+            } else {
+                log.error("Error processing {} entries for {}. Dropping them after {} attempts",
+                    taken.size(), name, failures, e);
+                droppedCounter.increment(taken.size());
+                failures = 0;
+            }
+            try {
+                channel.basicNack(deliveryTag, true, requeue);
+            } catch (IOException ex) {
+                log.error("Could not reject entries for {}", name, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.services.EntrantBufferService;
+import com.mrkirby153.snowsgivingbot.services.EntrantMembershipService;
+import com.mrkirby153.snowsgivingbot.services.EntryIngestionService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
+import com.mrkirby153.snowsgivingbot.services.StandaloneWorkerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+@Service
+@Slf4j
+public class EntryIngestionManager implements EntryIngestionService {
+
+    private final EntrantMembershipService entrantMembershipService;
+    private final EntrantBufferService entrantBufferService;
+    private final StandaloneWorkerService standaloneWorkerService;
+    private final GiveawayCacheService giveawayCacheService;
+    private final ShardManager shardManager;
+    private final OverflowPolicy overflowPolicy;
+    private final int workerCount;
+    private final long shutdownTimeout;
+
+    private final BlockingQueue<PendingEntry> queue;
+    private final Queue<PendingEntry> spill = new ConcurrentLinkedQueue<>();
+    private final Set<Long> routedGuilds = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+
+    /**
+     * Held shared by workers while they take and process an entry, and exclusively by
+     * {@link #drain(GiveawayEntity)} to wait for entries that have already been taken
+     */
+    private final ReadWriteLock processingLock = new ReentrantReadWriteLock();
+
+    /**
+     * Released once for every accepted entry. Workers wait on it outside the processing lock and
+     * only take entries while holding the lock. Drained entries leave extra permits behind, which
+     * just wake a worker that finds nothing to take
+     */
+    private final Semaphore available = new Semaphore(0);
+    private volatile boolean stopping = false;
+
+    private final AtomicLong spillDepth;
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    public EntryIngestionManager(EntrantMembershipService entrantMembershipService,
+        EntrantBufferService entrantBufferService,
+        StandaloneWorkerService standaloneWorkerService,
+        GiveawayCacheService giveawayCacheService, ShardManager shardManager,
+        @Value("${bot.entries.queue-size:10000}") int queueSize,
+        @Value("${bot.entries.workers:4}") int workerCount,
+        @Value("${bot.entries.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+        @Value("${bot.entries.shutdown-timeout:10000}") long shutdownTimeout,
+        MeterRegistry meterRegistry) {
+        this.entrantMembershipService = entrantMembershipService;
+        this.entrantBufferService = entrantBufferService;
+        this.standaloneWorkerService = standaloneWorkerService;
+        this.giveawayCacheService = giveawayCacheService;
+        this.shardManager = shardManager;
+        this.overflowPolicy = overflowPolicy;
+        this.workerCount = workerCount;
+        this.shutdownTimeout = shutdownTimeout;
+
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.workers = Executors.newFixedThreadPool(workerCount,
+            new ThreadFactoryBuilder().setNameFormat("entry-ingestion-%d").setDaemon(true)
+                .build());
+
+        Gauge.builder("entry_ingestion_queue_depth", queue, Collection::size)
+            .register(meterRegistry);
+        this.spillDepth = meterRegistry.gauge("entry_ingestion_spill_depth", new AtomicLong(0));
+        this.waitTimer = meterRegistry.timer("entry_ingestion_wait");
+        this.rejectedCounter = meterRegistry
+            .counter("entry_ingestion_rejected", "policy", overflowPolicy.name());
+        this.droppedCounter = meterRegistry.counter("entry_ingestion_dropped");
+    }
+
+    @PostConstruct
+    public void startWorkers() {
+        log.info("Starting {} entry ingestion workers. Overflow policy: {}", workerCount,
+            overflowPolicy);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Lets the workers finish the accepted entries before shutting down. Anything left once the
+     * shutdown timeout passes is processed on the calling thread, so it reaches the entrant buffer
+     * before the buffer's own final flush
+     */
+    @PreDestroy
+    public void stopWorkers() {
+        log.info("Stopping entry ingestion workers with {} queued entries", getQueueDepth());
+        stopping = true;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+                log.warn("Entry ingestion workers did not stop within {}ms", shutdownTimeout);
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+        processingLock.writeLock().lock();
+        try {
+            PendingEntry entry;
+            while ((entry = take(true)) != null) {
+                process(entry);
+            }
+        } finally {
+            processingLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void submit(GiveawayEntity giveaway, User user, long enteredAt) {
+        PendingEntry entry = new PendingEntry(giveaway, user, enteredAt);
+        if (queue.offer(entry)) {
+            available.release();
+            return;
+        }
+        rejectedCounter.increment();
+        log.debug("Ingestion queue is full, applying {} to {}", overflowPolicy, entry);
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(entry);
+                    available.release();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while queueing {}", entry);
+                }
+                break;
+            case STANDALONE:
+                routeToStandalone(giveaway);
+                spill(entry);
+                break;
+            case SPILL:
+                spill(entry);
+                break;
+        }
+    }
+
+    @Override
+    public void drain(GiveawayEntity giveaway) {
+        List<PendingEntry> entries = new ArrayList<>();
+        // Once the write lock is held no worker is between taking an entry and buffering it
+        processingLock.writeLock().lock();
+        try {
+            removeAll(queue, giveaway.getId(), entries);
+            int spilled = removeAll(spill, giveaway.getId(), entries);
+            spillDepth.addAndGet(-spilled);
+        } finally {
+            processingLock.writeLock().unlock();
+        }
+        log.debug("Draining {} queued entries for {}", entries.size(), giveaway);
+        entries.forEach(this::process);
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return queue.size() + spillDepth.get();
+    }
+
+    private void work() {
+        boolean spillFirst = true;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (stopping && queue.isEmpty() && spill.isEmpty()) {
+                return;
+            }
+            try {
+                if (!available.tryAcquire(20, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            processingLock.readLock().lock();
+            try {
+                // Alternate between the spill buffer and the queue so neither starves
+                PendingEntry entry = take(spillFirst);
+                spillFirst = !spillFirst;
+                if (entry != null) {
+                    process(entry);
+                }
+            } catch (Exception e) {
+                log.error("Error processing entry", e);
+            } finally {
+                processingLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the next entry from the spill buffer or the queue
+     *
+     * @param spillFirst If the spill buffer is checked before the queue
+     *
+     * @return The entry, or null if there are none left
+     */
+    private PendingEntry take(boolean spillFirst) {
+        PendingEntry entry = spillFirst ? null : queue.poll();
+        if (entry != null) {
+            return entry;
+        }
+        PendingEntry spilled = spill.poll();
+        if (spilled != null) {
+            spillDepth.decrementAndGet();
+            return spilled;
+        }
+        return queue.poll();
+    }
+
+    private void process(PendingEntry entry) {
+        waitTimer.record(System.nanoTime() - entry.queuedAt, TimeUnit.NANOSECONDS);
+        GiveawayEntity giveaway = entry.giveaway;
+        if (entry.enteredAt > getEndsAt(giveaway)) {
+            log.debug("Dropping {}, it was made after the giveaway ended", entry);
+            droppedCounter.increment();
+            return;
+        }
+        // The membership filter is updated by the entrant buffer once the entry is persisted
+        if (entrantMembershipService.isEntered(giveaway, entry.user.getIdLong())) {
+            log.debug("{} has already entered {}", entry.user, giveaway);
+            return;
+        }
+        if (entrantBufferService.enter(giveaway, entry.user)) {
+            log.debug("Entering {} into {}", entry.user, giveaway);
+        } else {
+            log.debug("{} is already pending entry into {}", entry.user, giveaway);
+        }
+    }
+
+    /**
+     * Gets when the giveaway currently ends. The entry's copy of the giveaway is from when it was
+     * submitted, so it misses changes to the end time made while the entry was queued
+     *
+     * @param giveaway The giveaway
+     *
+     * @return The end time in epoch millis
+     */
+    private long getEndsAt(GiveawayEntity giveaway) {
+        return giveawayCacheService.getById(giveaway.getId()).orElse(giveaway).getEndsAt()
+            .getTime();
+    }
+
+    private void spill(PendingEntry entry) {
+        spill.add(entry);
+        spillDepth.incrementAndGet();
+        available.release();
+    }
+
+    /**
+     * Moves the giveaway's guild to standalone worker mode so further entries bypass this bot.
+     * Only attempted once per guild
+     *
+     * @param giveaway The giveaway that overflowed
+     */
+    private void routeToStandalone(GiveawayEntity giveaway) {
+        if (!routedGuilds.add(giveaway.getGuildId())) {
+            return;
+        }
+        Guild guild = shardManager.getGuildById(giveaway.getGuildId());
+        if (guild == null || standaloneWorkerService.isStandalone(guild)) {
+            return;
+        }
+        log.warn("Entry ingestion is saturated, moving {} to standalone mode", guild);
+        try {
+            standaloneWorkerService.enableStandaloneWorker(guild);
+        } catch (Exception e) {
+            log.error("Could not move {} to standalone mode", guild, e);
+            routedGuilds.remove(giveaway.getGuildId());
+        }
+    }
+
+    private int removeAll(Collection<PendingEntry> source, long giveawayId,
+        List<PendingEntry> into) {
+        int removed = 0;
+        Iterator<PendingEntry> iterator = source.iterator();
+        while (iterator.hasNext()) {
+            PendingEntry entry = iterator.next();
+            if (entry.giveaway.getId() == giveawayId) {
+                iterator.remove();
+                into.add(entry);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static class PendingEntry {
+
+        private final GiveawayEntity giveaway;
+        private final User user;
+        private final long enteredAt;
+        private final long queuedAt = System.nanoTime();
+
+        private PendingEntry(GiveawayEntity giveaway, User user, long enteredAt) {
+            this.giveaway = giveaway;
+            this.user = user;
+            this.enteredAt = enteredAt;
+        }
+
+        @Override
+        public String toString() {
+            return "PendingEntry{" +
+                "giveaway=" + giveaway.getId() +
+                ", user=" + user.getId() +
+                '}';
+        }
+    }
+}
@@ -1,23 +1,259 @@
 package com.mrkirby153.snowsgivingbot.services.impl;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mrkirby153.snowsgivingbot.services.EventService;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.events.GenericEvent;
-import net.dv8tion.jda.api.hooks.EventListener;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.MethodIntrospector.MetadataLookup;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatches JDA events to beans with {@link EventListener} methods accepting them. Only event
+ * types with a listener are dispatched, everything else is dropped on the gateway thread. Each
+ * shard's events are handled in order on a single thread, so slow listeners should be
+ * {@link org.springframework.scheduling.annotation.Async}.
+ * <p>
+ * The listener's {@link EventListener#classes()} are honoured. Conditions are not supported, as
+ * the events do not go through Spring's event multicaster
+ */
 @Service
-@AllArgsConstructor
 @Slf4j
-public class EventManager implements EventService, EventListener {
+public class EventManager implements EventService, net.dv8tion.jda.api.hooks.EventListener,
+    SmartInitializingSingleton {
+
+    private static final String BASE_PACKAGE = "com.mrkirby153.snowsgivingbot";
+
+    private final ApplicationContext applicationContext;
+    private final MeterRegistry meterRegistry;
+    private final int queueSize;
+    private final long offerTimeout;
+
+    private final List<Handler> handlers = new ArrayList<>();
+    private final Map<Class<?>, Dispatch> dispatches = new ConcurrentHashMap<>();
+    private final Map<Integer, ThreadPoolExecutor> shardExecutors = new ConcurrentHashMap<>();
 
-    private final ApplicationEventPublisher publisher;
+    /**
+     * Events received before the handlers were registered, replayed once they are
+     */
+    private final List<GenericEvent> earlyEvents = new ArrayList<>();
+
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean initialized = false;
+
+    public EventManager(ApplicationContext applicationContext, MeterRegistry meterRegistry,
+        @Value("${bot.events.queue-size:1000}") int queueSize,
+        @Value("${bot.events.offer-timeout:100}") long offerTimeout) {
+        this.applicationContext = applicationContext;
+        this.meterRegistry = meterRegistry;
+        this.queueSize = queueSize;
+        this.offerTimeout = offerTimeout;
+
+        this.rejectedCounter = meterRegistry.counter("jda_events_rejected");
+        this.droppedCounter = meterRegistry.counter("jda_events_dropped");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String beanName : applicationContext.getBeanDefinitionNames()) {
+            Class<?> beanType = applicationContext.getType(beanName);
+            if (beanType == null) {
+                continue;
+            }
+            Class<?> type = ClassUtils.getUserClass(beanType);
+            if (!type.getName().startsWith(BASE_PACKAGE)) {
+                continue;
+            }
+            Map<Method, EventListener> methods = MethodIntrospector.selectMethods(type,
+                (MetadataLookup<EventListener>) method -> AnnotatedElementUtils
+                    .findMergedAnnotation(method, EventListener.class));
+            methods.forEach((method, listener) -> {
+                List<Class<?>> eventTypes = getEventTypes(method, listener);
+                if (eventTypes.isEmpty()) {
+                    return;
+                }
+                if (!listener.condition().isEmpty()) {
+                    throw new IllegalStateException(
+                        "Conditions are not supported on JDA event listeners: " + method);
+                }
+                Object bean = applicationContext.getBean(beanName);
+                Method invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+                ReflectionUtils.makeAccessible(invocable);
+                log.debug("Registering {}#{} for {}", type.getSimpleName(), method.getName(),
+                    eventTypes);
+                handlers.add(new Handler(bean, invocable, eventTypes, type.getSimpleName()));
+            });
+        }
+        log.info("Registered {} JDA event handlers", handlers.size());
+        synchronized (earlyEvents) {
+            // Replayed while holding the lock so no newer event can be dispatched ahead of them
+            log.debug("Replaying {} events received before registration", earlyEvents.size());
+            earlyEvents.forEach(this::dispatch);
+            earlyEvents.clear();
+            initialized = true;
+        }
+    }
 
     @Override
     public void onEvent(GenericEvent event) {
-        log.debug("Relaying {} to spring", event);
-        publisher.publishEvent(event);
+        if (!initialized) {
+            synchronized (earlyEvents) {
+                if (!initialized) {
+                    log.trace("Queueing {}, handlers have not been registered", event);
+                    earlyEvents.add(event);
+                    return;
+                }
+            }
+        }
+        dispatch(event);
+    }
+
+    private void dispatch(GenericEvent event) {
+        Dispatch dispatch = dispatches.computeIfAbsent(event.getClass(), this::createDispatch);
+        if (dispatch.handlers.isEmpty()) {
+            return;
+        }
+        dispatch.counter.increment();
+        log.debug("Dispatching {} to {} handlers", event, dispatch.handlers.size());
+        getExecutor(event.getJDA().getShardInfo().getShardId())
+            .execute(() -> dispatch.handlers.forEach(handler -> handler.invoke(event)));
+    }
+
+    /**
+     * Gets the JDA events a listener method handles, either its listener's classes or its
+     * parameter's type
+     *
+     * @param method   The listener method
+     * @param listener The method's listener annotation
+     *
+     * @return The JDA event types, or an empty list if the method does not handle JDA events
+     */
+    private static List<Class<?>> getEventTypes(Method method, EventListener listener) {
+        if (method.getParameterCount() > 1) {
+            return Collections.emptyList();
+        }
+        List<Class<?>> types;
+        if (listener.classes().length > 0) {
+            types = Arrays.asList(listener.classes());
+        } else if (method.getParameterCount() == 1) {
+            types = Collections.singletonList(method.getParameterTypes()[0]);
+        } else {
+            return Collections.emptyList();
+        }
+        return types.stream().filter(GenericEvent.class::isAssignableFrom)
+            .collect(Collectors.toList());
+    }
+
+    private Dispatch createDispatch(Class<?> eventClass) {
+        List<Handler> eventHandlers = handlers.stream()
+            .filter(handler -> handler.handles(eventClass))
+            .collect(Collectors.toList());
+        if (eventHandlers.isEmpty()) {
+            return new Dispatch(Collections.emptyList(), null);
+        }
+        return new Dispatch(eventHandlers,
+            meterRegistry.counter("jda_events", "type", eventClass.getSimpleName()));
+    }
+
+    private ThreadPoolExecutor getExecutor(int shard) {
+        return shardExecutors.computeIfAbsent(shard, id -> {
+            log.debug("Creating event executor for shard {}", id);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("events-shard-" + id).setDaemon(true)
+                    .build(), (runnable, e) -> {
+                // Wait briefly for room, then drop the event so a stuck listener cannot stall the
+                // gateway. Running it on the gateway thread would let it overtake queued events
+                rejectedCounter.increment();
+                try {
+                    if (!e.getQueue().offer(runnable, offerTimeout, TimeUnit.MILLISECONDS)) {
+                        droppedCounter.increment();
+                        log.debug("Dropping an event for shard {}, its queue is full", id);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    droppedCounter.increment();
+                    log.warn("Interrupted while queueing an event for shard {}", id);
+                }
+            });
+            Gauge.builder("jda_event_queue_depth", executor, e -> e.getQueue().size())
+                .tag("shard", String.valueOf(id)).register(meterRegistry);
+            return executor;
+        });
+    }
+
+    private static class Dispatch {
+
+        private final List<Handler> handlers;
+        private final Counter counter;
+
+        private Dispatch(List<Handler> handlers, Counter counter) {
+            this.handlers = handlers;
+            this.counter = counter;
+        }
+    }
+
+    private class Handler {
+
+        private final Object bean;
+        private final Method method;
+        private final List<Class<?>> eventTypes;
+        private final Timer timer;
+
+        private Handler(Object bean, Method method, List<Class<?>> eventTypes, String beanName) {
+            this.bean = bean;
+            this.method = method;
+            this.eventTypes = eventTypes;
+            this.timer = meterRegistry.timer("jda_event_handler", "type",
+                eventTypes.stream().map(Class::getSimpleName).collect(Collectors.joining(",")),
+                "handler", beanName + "#" + method.getName());
+        }
+
+        private boolean handles(Class<?> eventClass) {
+            return eventTypes.stream().anyMatch(type -> type.isAssignableFrom(eventClass));
+        }
+
+        private void invoke(GenericEvent event) {
+            timer.record(() -> {
+                try {
+                    if (method.getParameterCount() == 0) {
+                        method.invoke(bean);
+                    } else {
+                        method.invoke(bean, event);
+                    }
+                } catch (InvocationTargetException e) {
+                    log.error("Error handling {} in {}", event, method, e.getTargetException());
+                } catch (IllegalAccessException e) {
+                    log.error("Could not invoke {}", method, e);
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,88 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayRenderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class GiveawayCacheManager implements GiveawayCacheService {
+
+    private final LoadingCache<Long, Optional<GiveawayEntity>> byId;
+    private final LoadingCache<Long, Optional<GiveawayEntity>> byMessageId;
+    private final GiveawayRenderService giveawayRenderService;
+
+    public GiveawayCacheManager(GiveawayRepository giveawayRepository,
+        GiveawayRenderService giveawayRenderService,
+        @Value("${bot.giveaway-cache.size:1000}") long size,
+        @Value("${bot.giveaway-cache.ttl:300}") long ttl, MeterRegistry meterRegistry) {
+        this.giveawayRenderService = giveawayRenderService;
+        this.byId = CacheBuilder.newBuilder().maximumSize(size)
+            .expireAfterWrite(ttl, TimeUnit.SECONDS).recordStats()
+            .build(new CacheLoader<>() {
+                @Override
+                public Optional<GiveawayEntity> load(Long key) {
+                    log.debug("Cache miss. Looking up giveaway {}", key);
+                    return giveawayRepository.findById(key);
+                }
+            });
+        // Negative results are cached as well, reactions are added to plenty of messages that are
+        // not giveaways
+        this.byMessageId = CacheBuilder.newBuilder().maximumSize(size)
+            .expireAfterWrite(ttl, TimeUnit.SECONDS).recordStats()
+            .build(new CacheLoader<>() {
+                @Override
+                public Optional<GiveawayEntity> load(Long key) {
+                    log.debug("Cache miss. Looking up giveaway for message {}", key);
+                    return giveawayRepository.findByMessageId(key);
+                }
+            });
+
+        GuavaCacheMetrics.monitor(meterRegistry, byId, "giveaway_cache", "key", "id");
+        GuavaCacheMetrics.monitor(meterRegistry, byMessageId, "giveaway_cache", "key", "message");
+    }
+
+    @Override
+    public Optional<GiveawayEntity> getById(long id) {
+        return byId.getUnchecked(id);
+    }
+
+    @Override
+    public Optional<GiveawayEntity> getByMessageId(long messageId) {
+        return byMessageId.getUnchecked(messageId);
+    }
+
+    @Override
+    public void invalidate(GiveawayEntity giveaway) {
+        log.trace("Invalidating cached copies of {}", giveaway);
+        byId.invalidate(giveaway.getId());
+        byMessageId.invalidate(giveaway.getMessageId());
+        giveawayRenderService.invalidate(giveaway);
+    }
+
+    @EventListener
+    public void onGiveawayStart(GiveawayStartedEvent event) {
+        // The message may have been looked up before the giveaway was saved
+        invalidate(event.getGiveaway());
+    }
+
+    @EventListener
+    public void onGiveawayEnd(GiveawayEndedEvent event) {
+        invalidate(event.getGiveaway());
+    }
+}
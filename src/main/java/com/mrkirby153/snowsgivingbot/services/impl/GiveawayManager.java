@@ -1,15 +1,26 @@
 package com.mrkirby153.snowsgivingbot.services.impl;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
-import com.mrkirby153.snowsgivingbot.entity.GiveawayEntrantEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
 import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
 import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
-import com.mrkirby153.snowsgivingbot.event.AllShardsReadyEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
-import com.mrkirby153.snowsgivingbot.event.GiveawayEnterEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService.RequestClass;
 import com.mrkirby153.snowsgivingbot.services.DiscordService;
+import com.mrkirby153.snowsgivingbot.services.EndLeaseService;
+import com.mrkirby153.snowsgivingbot.services.EntrantBufferService;
+import com.mrkirby153.snowsgivingbot.services.EntrantCounterService;
+import com.mrkirby153.snowsgivingbot.services.EntrantMembershipService;
+import com.mrkirby153.snowsgivingbot.services.EntryIngestionService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayPreCloseService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayPreCloseService.PreparedEnd;
+import com.mrkirby153.snowsgivingbot.services.GiveawayRenderService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayRenderService.RenderPriority;
+import com.mrkirby153.snowsgivingbot.services.GiveawayScheduleService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayService;
 import com.mrkirby153.snowsgivingbot.services.RabbitMQService;
 import com.mrkirby153.snowsgivingbot.services.StandaloneWorkerService;
@@ -17,8 +28,12 @@ import com.mrkirby153.snowsgivingbot.services.backfill.GiveawayBackfillService;
 import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
 import com.mrkirby153.snowsgivingbot.services.setting.Settings;
 import com.mrkirby153.snowsgivingbot.utils.GiveawayEmbedUtils;
+import com.mrkirby153.snowsgivingbot.utils.MessageChunker;
+import com.mrkirby153.snowsgivingbot.utils.WinnerSelector;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import me.mrkirby153.kcutils.Time;
 import net.dv8tion.jda.api.Permission;
@@ -39,25 +54,30 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
-import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import javax.transaction.Transactional;
 
@@ -70,6 +90,11 @@ public class GiveawayManager implements GiveawayService {
     private static final List<MentionType> END_MESSAGE_ALLOWED_MENTIONS = Arrays.asList(
         MentionType.USER, MentionType.CHANNEL, MentionType.EMOTE);
 
+    /**
+     * The most lookup rounds used when sampling winners before every entrant is loaded instead
+     */
+    private static final int MAX_SAMPLE_ROUNDS = 4;
+
     private final ShardManager shardManager;
     private final EntrantRepository entrantRepository;
     private final GiveawayRepository giveawayRepository;
@@ -77,49 +102,103 @@ public class GiveawayManager implements GiveawayService {
     private final StandaloneWorkerService sws;
     private final RabbitMQService rabbitMQService;
     private final ApplicationEventPublisher publisher;
-    private final TaskExecutor taskExecutor;
     private final GiveawayBackfillService backfillService;
     private final SettingService settingService;
-
-    private final Map<String, GiveawayEntity> entityCache = new HashMap<>();
+    private final EntrantBufferService entrantBufferService;
+    private final EntrantMembershipService entrantMembershipService;
+    private final GiveawayCacheService giveawayCacheService;
+    private final EntryIngestionService entryIngestionService;
+    private final EntrantCounterService entrantCounterService;
+    private final GiveawayScheduleService giveawayScheduleService;
+    private final GiveawayPreCloseService giveawayPreCloseService;
+    private final EndLeaseService endLeaseService;
+    private final GiveawayRenderService giveawayRenderService;
+    private final DiscordRequestService discordRequestService;
 
     private final String emoji;
     private final boolean custom;
     private final String emoteId;
+    private final long samplingThreshold;
+    private final int samplingMaxWinners;
+    private final int rerollCandidates;
+    private final long drainTimeout;
 
-    private final Object endingGiveawayLock = new Object();
     private final Random random = new Random();
-    private final List<Long> endingGiveaways = new CopyOnWriteArrayList<>();
+    private final Set<Long> endingGiveaways = ConcurrentHashMap.newKeySet();
+    private final ExecutorService endExecutor;
 
-
-    private final Counter giveawayEntrantsCounter;
     private final Counter giveawaysStartedCounter;
     private final Counter giveawaysEndedCounter;
-    private final AtomicLong runningGiveawayGauge;
-
-    private boolean isReady = false;
+    private final Timer inMemoryWinnerTimer;
+    private final Timer sampledWinnerTimer;
+    private final Timer endQueueDelayTimer;
+    private final Timer endLagTimer;
+    private final Counter drainTimeoutCounter;
+    private final Timer announcementTimer;
+    private final Timer preparedAnnouncementTimer;
 
     public GiveawayManager(ShardManager shardManager, EntrantRepository entrantRepository,
         GiveawayRepository giveawayRepository, DiscordService discordService,
         @Value("${bot.reaction:" + TADA + "}") String emote, ApplicationEventPublisher aep,
-        TaskExecutor taskExecutor, StandaloneWorkerService sws, RabbitMQService rabbitMQService,
+        StandaloneWorkerService sws, RabbitMQService rabbitMQService,
         @Lazy GiveawayBackfillService backfillService, SettingService settingService,
+        EntrantBufferService entrantBufferService,
+        EntrantMembershipService entrantMembershipService,
+        GiveawayCacheService giveawayCacheService, EntryIngestionService entryIngestionService,
+        EntrantCounterService entrantCounterService,
+        GiveawayScheduleService giveawayScheduleService,
+        GiveawayPreCloseService giveawayPreCloseService, EndLeaseService endLeaseService,
+        GiveawayRenderService giveawayRenderService, DiscordRequestService discordRequestService,
+        @Value("${bot.winners.db-sampling-threshold:500000}") long samplingThreshold,
+        @Value("${bot.winners.db-sampling-max-winners:50}") int samplingMaxWinners,
+        @Value("${bot.winners.reroll-candidates:25}") int rerollCandidates,
+        @Value("${bot.giveaways.end-threads:8}") int endThreads,
+        @Value("${bot.giveaways.drain-timeout:300000}") long drainTimeout,
         MeterRegistry meterRegistry) {
         this.shardManager = shardManager;
         this.entrantRepository = entrantRepository;
         this.giveawayRepository = giveawayRepository;
         this.discordService = discordService;
         this.publisher = aep;
-        this.taskExecutor = taskExecutor;
         this.sws = sws;
         this.rabbitMQService = rabbitMQService;
         this.backfillService = backfillService;
         this.settingService = settingService;
+        this.entrantBufferService = entrantBufferService;
+        this.entrantMembershipService = entrantMembershipService;
+        this.giveawayCacheService = giveawayCacheService;
+        this.entryIngestionService = entryIngestionService;
+        this.entrantCounterService = entrantCounterService;
+        this.giveawayScheduleService = giveawayScheduleService;
+        this.giveawayPreCloseService = giveawayPreCloseService;
+        this.endLeaseService = endLeaseService;
+        this.giveawayRenderService = giveawayRenderService;
+        this.discordRequestService = discordRequestService;
+        this.samplingThreshold = samplingThreshold;
+        this.samplingMaxWinners = samplingMaxWinners;
+        this.rerollCandidates = rerollCandidates;
+        this.drainTimeout = drainTimeout;
 
-        giveawayEntrantsCounter = meterRegistry.counter("giveaway_entrants");
         giveawaysStartedCounter = meterRegistry.counter("giveaway_started");
         giveawaysEndedCounter = meterRegistry.counter("giveaway_ended");
-        runningGiveawayGauge = meterRegistry.gauge("running_giveaways", new AtomicLong(0));
+        inMemoryWinnerTimer = meterRegistry.timer("giveaway_winner_selection", "mode", "memory");
+        sampledWinnerTimer = meterRegistry.timer("giveaway_winner_selection", "mode", "sampled");
+        endQueueDelayTimer = meterRegistry.timer("giveaway_end_queue_delay");
+        drainTimeoutCounter = meterRegistry.counter("giveaway_drain_timeouts");
+        announcementTimer = Timer.builder("giveaway_time_to_announcement").tag("prepared", "false")
+            .publishPercentileHistogram().register(meterRegistry);
+        preparedAnnouncementTimer = Timer.builder("giveaway_time_to_announcement")
+            .tag("prepared", "true").publishPercentileHistogram().register(meterRegistry);
+        endLagTimer = Timer.builder("giveaway_end_lag").publishPercentileHistogram()
+            .register(meterRegistry);
+
+        // Giveaways end independently of each other, so a slow end only occupies its own thread
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(endThreads, endThreads, 60,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("giveaway-end-%d").setDaemon(true).build());
+        Gauge.builder("giveaway_end_queue_depth", executor, e -> e.getQueue().size())
+            .register(meterRegistry);
+        this.endExecutor = executor;
 
         if (emote.matches("\\d{17,18}")) {
             emoji = null;
@@ -147,16 +226,16 @@ public class GiveawayManager implements GiveawayService {
         }
 
         entity.setEndsAt(endsAt);
-        entity.setChannelId(channel.getId());
+        entity.setChannelId(channel.getIdLong());
         entity.setSecret(secret);
-        entity.setGuildId(channel.getGuild().getId());
-        entity.setHost(host.getId());
-        entity.setMessageId("<pending>");
+        entity.setGuildId(channel.getGuild().getIdLong());
+        entity.setHost(host.getIdLong());
+        entity.setMessageId(0);
         entity = giveawayRepository.save(entity);
 
         GiveawayEntity finalEntity = entity;
         channel.sendMessage(GiveawayEmbedUtils.renderMessage(entity, settingService)).queue(m -> {
-            finalEntity.setMessageId(m.getId());
+            finalEntity.setMessageId(m.getIdLong());
             if (!settingService.get(Settings.USE_BUTTONS, channel.getGuild())) {
                 addGiveawayEmote(m);
             }
@@ -169,12 +248,12 @@ public class GiveawayManager implements GiveawayService {
     }
 
     @Override
-    public void deleteGiveaway(String messageId) {
+    public void deleteGiveaway(long messageId) {
         deleteGiveaway(messageId, true);
     }
 
     @Override
-    public void deleteGiveaway(String messageId, boolean deleteMessage) {
+    public void deleteGiveaway(long messageId, boolean deleteMessage) {
         GiveawayEntity entity = giveawayRepository.findByMessageId(messageId)
             .orElseThrow(() -> new IllegalArgumentException("Giveaway not found"));
         deleteGiveaway(entity, deleteMessage);
@@ -193,38 +272,153 @@ public class GiveawayManager implements GiveawayService {
         }
         publisher.publishEvent(new GiveawayEndedEvent(entity));
         giveawayRepository.delete(entity);
+        giveawayCacheService.invalidate(entity);
     }
 
     @Override
     public List<String> determineWinners(GiveawayEntity giveaway) {
-        return determineWinners(giveaway, Collections.emptyList(), giveaway.getWinners());
+        return determineWinners(giveaway, null);
+    }
+
+    /**
+     * Draws the winners and reroll candidates of the giveaway
+     *
+     * @param giveaway   The giveaway
+     * @param candidates The sorted ids of all entrants, or null to load them from the database
+     *
+     * @return The winners
+     */
+    private List<String> determineWinners(GiveawayEntity giveaway, long[] candidates) {
+        long seed = random.nextLong();
+        Random drawRandom = new Random(seed);
+        int amount = giveaway.getWinners() + rerollCandidates;
+        long[] drawn = candidates != null ? inMemoryWinnerTimer.record(
+            () -> WinnerSelector.select(candidates, amount, Collections.emptySet(), drawRandom))
+            : draw(giveaway, amount, Collections.emptySet(), drawRandom);
+        int winners = Math.min(giveaway.getWinners(), drawn.length);
+        giveaway.setDrawSeed(seed);
+        giveaway.setRerollCandidates(Arrays.copyOfRange(drawn, winners, drawn.length));
+        return toStrings(Arrays.copyOf(drawn, winners));
     }
 
     @Override
     public List<String> determineWinners(GiveawayEntity giveaway, List<String> existingWinners,
         int amount) {
-        List<String> allIds = entrantRepository.findAllIdsFromGiveaway(giveaway);
-        List<String> winList = new ArrayList<>();
-        while (winList.size() < amount && !allIds.isEmpty()) {
-            String potentialWinner;
-            do {
-                potentialWinner = allIds.remove(random.nextInt(allIds.size()));
-            } while (existingWinners.contains(potentialWinner));
-            winList.add(potentialWinner);
+        return toStrings(draw(giveaway, amount, parseIds(existingWinners), random));
+    }
+
+    private long[] draw(GiveawayEntity giveaway, int amount, Set<Long> excluded, Random random) {
+        long entrants = entrantCounterService.getCount(giveaway);
+        if (entrants >= samplingThreshold && amount <= samplingMaxWinners) {
+            log.debug("Sampling {} winners from {} entrants of {} in the database", amount,
+                entrants, giveaway);
+            return sampledWinnerTimer
+                .record(() -> sampleWinners(giveaway, amount, excluded, random));
+        }
+        return inMemoryWinnerTimer.record(() -> WinnerSelector
+            .select(entrantRepository.getEntrantIds(giveaway.getId()), amount, excluded, random));
+    }
+
+    /**
+     * Takes the next unused candidates of the giveaway's draw, falling back to a new draw if they
+     * run out
+     */
+    private List<String> takeRerollCandidates(GiveawayEntity giveaway, List<String> keep,
+        int amount) {
+        Set<Long> excluded = parseIds(keep);
+        long[] candidates = giveaway.getRerollCandidates();
+        List<String> picked = new ArrayList<>();
+        int used = 0;
+        while (picked.size() < amount && used < candidates.length) {
+            long candidate = candidates[used++];
+            if (excluded.add(candidate)) {
+                picked.add(Long.toString(candidate));
+            }
+        }
+        giveaway.setRerollCandidates(Arrays.copyOfRange(candidates, used, candidates.length));
+        if (picked.size() < amount) {
+            log.debug("Out of reroll candidates for {}, drawing {} more", giveaway,
+                amount - picked.size());
+            List<String> exclude = new ArrayList<>(keep);
+            exclude.addAll(picked);
+            picked.addAll(determineWinners(giveaway, exclude, amount - picked.size()));
+        }
+        return picked;
+    }
+
+    private Set<Long> parseIds(Collection<String> ids) {
+        Set<Long> parsed = new HashSet<>();
+        for (String id : ids) {
+            try {
+                parsed.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                // Not a user id, it can never be picked anyway
+            }
+        }
+        return parsed;
+    }
+
+    private List<String> toStrings(long[] ids) {
+        List<String> strings = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            strings.add(Long.toString(id));
         }
-        return winList;
+        return strings;
+    }
+
+    /**
+     * Picks winners by looking up random entry numbers of the giveaway, so only the winners are
+     * transferred from the database. Each round looks up twice the missing winners in a single
+     * query to cover gaps and excluded users. If the rounds run out, every entrant is loaded
+     */
+    private long[] sampleWinners(GiveawayEntity giveaway, int amount, Set<Long> excluded,
+        Random random) {
+        long entries = entrantRepository.getLastEntryNumber(giveaway.getId());
+        Set<Long> probed = new HashSet<>();
+        Set<Long> winners = new LinkedHashSet<>();
+        for (int round = 0; round < MAX_SAMPLE_ROUNDS && winners.size() < amount; round++) {
+            int size = (amount - winners.size()) * 2 + 8;
+            if (probed.size() + size * 2L > entries) {
+                // Too few numbers are left unprobed to keep drawing them at random
+                break;
+            }
+            List<Long> probes = new ArrayList<>(size);
+            while (probes.size() < size) {
+                long entryNumber = 1 + (long) (random.nextDouble() * entries);
+                if (probed.add(entryNumber)) {
+                    probes.add(entryNumber);
+                }
+            }
+            Map<Long, Long> ids = entrantRepository.getEntrantIdsAt(giveaway.getId(), probes);
+            // Probes are taken in the order they were drawn so seeded draws are reproducible
+            for (Long entryNumber : probes) {
+                Long id = ids.get(entryNumber);
+                if (id != null && !excluded.contains(id) && winners.size() < amount) {
+                    winners.add(id);
+                }
+            }
+        }
+        if (winners.size() < amount) {
+            log.debug("Sampling found {} of {} winners for {}, loading every entrant",
+                winners.size(), amount, giveaway);
+            return WinnerSelector.select(entrantRepository.getEntrantIds(giveaway.getId()),
+                amount, excluded, random);
+        }
+        return winners.stream().mapToLong(Long::longValue).toArray();
     }
 
     @Override
-    public void endGiveaway(String messageId) {
+    public void endGiveaway(long messageId) {
         GiveawayEntity ge = giveawayRepository.findByMessageId(messageId)
             .orElseThrow(() -> new IllegalArgumentException("Giveaway not found"));
         ge.setEndsAt(new Timestamp(System.currentTimeMillis()));
-        giveawayRepository.save(ge);
+        ge = giveawayRepository.save(ge);
+        giveawayCacheService.invalidate(ge);
+        giveawayScheduleService.schedule(ge);
     }
 
     @Override
-    public void reroll(String mid, String[] users) {
+    public void reroll(long mid, String[] users) {
         GiveawayEntity ge = giveawayRepository.findByMessageId(mid)
             .orElseThrow(() -> new IllegalArgumentException("Giveaway not found"));
         if (ge.getState() != GiveawayState.ENDED) {
@@ -248,11 +442,11 @@ public class GiveawayManager implements GiveawayService {
                 existingWinners.remove(s.trim());
             }
             log.debug("picking {} new winners for {}", users.length, ge.getId());
-            newWinners = determineWinners(ge, existingWinners, users.length);
+            newWinners = takeRerollCandidates(ge, existingWinners, users.length);
             allWinners.addAll(existingWinners);
         } else {
             log.debug("Rerolling with new users");
-            newWinners = determineWinners(ge);
+            newWinners = takeRerollCandidates(ge, Collections.emptyList(), ge.getWinners());
         }
         allWinners.addAll(newWinners);
 
@@ -260,34 +454,33 @@ public class GiveawayManager implements GiveawayService {
         // it only shows the new winners, then set the final winners of the giveaway so the embed
         // updates
         List<String> messages = generateEndMessage(ge, newWinners, true);
-        messages.forEach(
-            m -> chan.sendMessage(m).allowedMentions(END_MESSAGE_ALLOWED_MENTIONS)
-                .mentionUsers(newWinners.toArray(new String[0])).queue());
+        messages.forEach(m -> discordRequestService.submit(chan.getIdLong(),
+            RequestClass.ANNOUNCEMENT,
+            () -> chan.sendMessage(m).allowedMentions(END_MESSAGE_ALLOWED_MENTIONS)
+                .mentionUsers(newWinners.toArray(new String[0]))));
         ge.setFinalWinners(allWinners.toArray(new String[0]));
         ge = giveawayRepository.save(ge);
-        renderGiveaway(ge);
+        giveawayCacheService.invalidate(ge);
+        giveawayRenderService.render(ge, RenderPriority.STATE);
     }
 
     @Override
     public List<GiveawayEntity> getAllGiveaways(Guild guild) {
-        return giveawayRepository.findAllByGuildId(guild.getId());
+        return giveawayRepository.findAllByGuildId(guild.getIdLong());
     }
 
     @Override
     public void enterGiveaway(User user, GiveawayEntity entity) {
-        if (entrantRepository.existsByGiveawayAndUserId(entity, user.getId())) {
-            log.debug("{} has already entered {}", user, entity);
-        } else {
-            if (entity.getState() != GiveawayState.RUNNING) {
-                log.debug("Not entering {} into {}. Has already ended", user, entity);
-                return;
-            }
-            log.debug("Entering {} into {}", user, entity);
-            GiveawayEntrantEntity gee = new GiveawayEntrantEntity(entity, user.getId());
-            entrantRepository.save(gee);
-            publisher.publishEvent(new GiveawayEnterEvent(user, entity));
-            giveawayEntrantsCounter.increment();
+        enterGiveaway(user, entity, System.currentTimeMillis());
+    }
+
+    @Override
+    public void enterGiveaway(User user, GiveawayEntity entity, long enteredAt) {
+        if (entity.getState() != GiveawayState.RUNNING) {
+            log.debug("Not entering {} into {}. Has already ended", user, entity);
+            return;
         }
+        entryIngestionService.submit(entity, user, enteredAt);
     }
 
     @Override
@@ -308,40 +501,12 @@ public class GiveawayManager implements GiveawayService {
 
     @Override
     public void update(GiveawayEntity entity) {
-        Guild g = shardManager.getGuildById(entity.getGuildId());
-        if (g == null) {
-            return;
-        }
-        TextChannel chan = g.getTextChannelById(entity.getChannelId());
-        if (chan == null || !chan.canTalk()) {
-            return;
-        }
-        chan.retrieveMessageById(entity.getMessageId()).queue(msg -> {
-            msg.editMessage(GiveawayEmbedUtils.renderMessage(entity, settingService)).queue();
-        });
+        giveawayRenderService.render(entity, RenderPriority.COSMETIC);
     }
 
     @Override
     public void renderGiveaway(GiveawayEntity entity) {
-        log.debug("Updating {}", entity);
-        TextChannel c = shardManager.getTextChannelById(entity.getChannelId());
-        if (c != null) {
-            // Check if we have permission to update the giveaway
-            if (c.getGuild().getSelfMember()
-                .hasPermission(c, Permission.MESSAGE_WRITE, Permission.MESSAGE_READ)) {
-                c.retrieveMessageById(entity.getMessageId()).queue(m -> {
-                    m.editMessage(GiveawayEmbedUtils.renderMessage(entity, settingService)).queue();
-                });
-            }
-        }
-    }
-
-    @Scheduled(fixedDelay = 1000L) // 1 Second
-    public void updateGiveaways() {
-        if (!isReady) {
-            return;
-        }
-        endEndedGiveaways();
+        giveawayRenderService.render(entity, RenderPriority.COSMETIC);
     }
 
     /**
@@ -365,14 +530,17 @@ public class GiveawayManager implements GiveawayService {
     private void addGiveawayEmote(Message message, boolean forceDefault) {
         ConfiguredGiveawayEmote cge = settingService
             .get(Settings.GIVEAWAY_EMOTE, message.getGuild());
+        long channelId = message.getChannel().getIdLong();
         if (cge == null || forceDefault) {
             if (custom) {
-                message.addReaction(discordService.findEmoteById(emoteId)).queue();
+                discordRequestService.submit(channelId, RequestClass.REACTION,
+                    () -> message.addReaction(discordService.findEmoteById(emoteId)));
             } else {
-                message.addReaction(emoji).queue();
+                discordRequestService.submit(channelId, RequestClass.REACTION,
+                    () -> message.addReaction(emoji));
             }
         } else {
-            Consumer<? super Throwable> errorHandler = throwable -> {
+            BiConsumer<Void, ? super Throwable> errorHandler = (result, throwable) -> {
                 if (throwable instanceof ErrorResponseException
                     && ((ErrorResponseException) throwable).getErrorResponse()
                     == ErrorResponse.UNKNOWN_EMOJI) {
@@ -384,32 +552,53 @@ public class GiveawayManager implements GiveawayService {
                 }
             };
             if (cge.isCustom()) {
-                message.addReaction(discordService.findEmoteById(cge.getEmote()))
-                    .queue(null, errorHandler);
+                discordRequestService.submit(channelId, RequestClass.REACTION,
+                    () -> message.addReaction(discordService.findEmoteById(cge.getEmote())))
+                    .whenComplete(errorHandler);
             } else {
-                message.addReaction(cge.getEmote()).queue(null, errorHandler);
+                discordRequestService.submit(channelId, RequestClass.REACTION,
+                    () -> message.addReaction(cge.getEmote())).whenComplete(errorHandler);
             }
         }
     }
 
-    /**
-     * Ends all running giveaways whose end time is before 1.5s from now
-     */
-    private void endEndedGiveaways() {
-        List<GiveawayEntity> endingGiveaways = giveawayRepository
-            .findAllByEndsAtBeforeAndStateIs(
-                new Timestamp(Instant.now().plusSeconds(1).plusMillis(500).toEpochMilli()),
-                GiveawayState.RUNNING);
-        endingGiveaways.forEach(this::endGiveaway);
+    @Override
+    public void endGiveaway(GiveawayEntity giveaway) {
+        endGiveaway(giveaway, false);
+    }
+
+    @Override
+    public void prepareEnd(GiveawayEntity giveaway) {
+        endExecutor.execute(() -> {
+            try {
+                giveawayPreCloseService.prepare(giveaway);
+            } catch (Exception e) {
+                log.error("Error preparing giveaway {}", giveaway, e);
+            }
+        });
     }
 
     /**
-     * Ends the provided giveaway
+     * Waits for the giveaway's backfill and standalone queue to finish. Gives up after the drain
+     * timeout so a stuck queue can't block the end forever
      *
-     * @param giveaway The giveaway to end
+     * @param giveaway The giveaway
      */
-    private void endGiveaway(GiveawayEntity giveaway) {
-        endGiveaway(giveaway, false);
+    private void awaitProcessed(GiveawayEntity giveaway) {
+        CompletableFuture<Void> processed = CompletableFuture
+            .allOf(backfillService.awaitBackfill(giveaway),
+                rabbitMQService.awaitDrained(giveaway));
+        try {
+            processed.get(drainTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Giveaway {} was not processed within {}ms, ending it anyway", giveaway,
+                drainTimeout);
+            drainTimeoutCounter.increment();
+        } catch (ExecutionException e) {
+            log.warn("Error waiting for {} to be processed", giveaway, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -433,113 +622,139 @@ public class GiveawayManager implements GiveawayService {
                     + msgLink : ""));
         }
 
-        List<String> winnerMentions = winners.stream()
-            .map(id -> String.format("<@!%s>", id)).collect(Collectors.toList());
-
-        String winMessage = String
-            .format(":tada: Congratulations %s, you won **%s**", String.join(" ", winnerMentions),
-                entity.getName());
+        String winMessage = String.format("you won **%s**", entity.getName());
         if (includeMsgLink) {
             winMessage = winMessage + "\n" + msgLink;
         }
-        if (winMessage.length() < 1900) {
-            return Collections.singletonList(winMessage);
-        }
-        // We need to split messages
-        List<String> messages = new ArrayList<>();
-        StringBuilder builder = new StringBuilder();
-        builder.append(":tada: Congratulations ");
-        for (String mention : winnerMentions) {
-            if (builder.length() + mention.length() + 1 > 1990) {
-                messages.add(builder.toString());
-                builder = new StringBuilder();
-            }
-            builder.append(String.format("%s ", mention));
-        }
-        String msg = String.format("you won **%s**", entity.getName());
-        if (includeMsgLink) {
-            msg = msg + "\n" + msgLink;
-        }
-        if (builder.length() + msg.length() >= 1990) {
-            messages.add(builder.toString());
-            builder = new StringBuilder();
-        }
-        builder.append(msg);
-        if (builder.length() > 0) {
-            messages.add(builder.toString());
-        }
-        return messages;
+        return new MessageChunker().append(":tada: Congratulations ")
+            .appendMentions(winners, " ").separator(", ").append(winMessage).build();
     }
 
-    private synchronized void endGiveaway(GiveawayEntity giveaway, boolean reroll) {
-        if (endingGiveaways.contains(giveaway.getId())) {
-            log.debug("Giveaway {} is alrady ending", giveaway);
+    private void endGiveaway(GiveawayEntity giveaway, boolean reroll) {
+        if (!endingGiveaways.add(giveaway.getId())) {
+            log.debug("Giveaway {} is already ending", giveaway);
             return;
         }
-        log.info("Ending giveaway {}", giveaway);
-        sws.removeFromWorker(giveaway);
-        endingGiveaways.add(giveaway.getId());
-        taskExecutor.execute(() -> {
+        long queuedAt = System.nanoTime();
+        endExecutor.execute(() -> {
+            endQueueDelayTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            boolean acquired = false;
             try {
-                synchronized (endingGiveawayLock) {
-                    giveaway.setState(GiveawayState.ENDING);
-                    TextChannel channel = shardManager.getTextChannelById(giveaway.getChannelId());
-                    if (channel == null || !channel.getGuild().getSelfMember()
-                        .hasPermission(channel, Permission.MESSAGE_READ,
-                            Permission.MESSAGE_WRITE)) {
-                        log.info(
-                            "Can't end giveaway {}. Channel not found or missing MESSAGE_READ/MESSAGE_WRITE",
-                            giveaway);
-                        return;
-                    }
-                    renderGiveaway(giveaway);
-                    long standaloneQueueSize = 0;
-                    while (backfillService.isBackfilling(giveaway)
-                        || (standaloneQueueSize = rabbitMQService.queueSize(giveaway)) > 0) {
-                        // TODO: 10/31/20 After 5 minutes or so we should time out and abort to prevent deadlock
-                        log.debug("Giveaway is still being processed. Queue Size: {}",
-                            standaloneQueueSize);
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e) {
-                            // Ignore
-                        }
-                    }
-                    List<String> winners = determineWinners(giveaway);
-                    giveaway.setFinalWinners(winners.toArray(new String[0]));
-                    if (giveaway.isSecret() && !reroll) {
-                        channel.sendMessage(String
+                acquired = acquireEnd(giveaway);
+            } catch (Exception e) {
+                log.error("Could not acquire the end of {}, retrying", giveaway, e);
+                giveawayScheduleService.retry(giveaway, endLeaseService.getTtl());
+            } finally {
+                if (!acquired) {
+                    endingGiveaways.remove(giveaway.getId());
+                }
+            }
+            if (!acquired) {
+                return;
+            }
+            log.info("Ending giveaway {}", giveaway);
+            sws.removeFromWorker(giveaway);
+            try {
+                giveaway.setState(GiveawayState.ENDING);
+                PreparedEnd prepared = giveawayPreCloseService.take(giveaway).orElse(null);
+                TextChannel channel = prepared != null ? prepared.getChannel()
+                    : shardManager.getTextChannelById(giveaway.getChannelId());
+                if (channel == null || !channel.getGuild().getSelfMember()
+                    .hasPermission(channel, Permission.MESSAGE_READ,
+                        Permission.MESSAGE_WRITE)) {
+                    log.info(
+                        "Can't end giveaway {}. Channel not found or missing MESSAGE_READ/MESSAGE_WRITE",
+                        giveaway);
+                    return;
+                }
+                if (prepared != null) {
+                    giveawayRenderService.render(giveaway, prepared.getEndingMessage(),
+                        RenderPriority.STATE);
+                } else {
+                    giveawayRenderService.render(giveaway, RenderPriority.STATE);
+                }
+                awaitProcessed(giveaway);
+                entryIngestionService.drain(giveaway);
+                entrantBufferService.flush(giveaway);
+                // Prepared giveaways only merge in the entrants recorded since they were prepared
+                List<String> winners = prepared != null ? determineWinners(giveaway,
+                    prepared.getCandidates()) : determineWinners(giveaway);
+                giveaway.setFinalWinners(winners.toArray(new String[0]));
+                if (giveaway.isSecret() && !reroll) {
+                    discordRequestService.submit(channel.getIdLong(), RequestClass.ANNOUNCEMENT,
+                        () -> channel.sendMessage(String
                             .format(":tada: **%s** has ended. Stay tuned for the winners",
-                                giveaway.getName())).queue();
-                        return;
-                    }
-                    boolean includeLink =
-                        !channel.hasLatestMessage() || !channel.getLatestMessageId()
-                            .equals(giveaway.getMessageId());
-                    // Force disable jump links if they're disabled in a guild setting
-                    if (!settingService.get(Settings.DISPLAY_JUMP_LINKS, channel.getGuild())) {
-                        includeLink = false;
-                    }
-                    generateEndMessage(giveaway, winners, includeLink)
-                        .forEach(msg -> channel.sendMessage(msg)
-                            .allowedMentions(END_MESSAGE_ALLOWED_MENTIONS)
-                            .mentionUsers(winners.toArray(new String[0])).queue());
-                    giveaway.setState(GiveawayState.ENDED);
-                    renderGiveaway(giveaway);
+                                giveaway.getName())));
+                    return;
                 }
+                boolean includeLink =
+                    !channel.hasLatestMessage()
+                        || channel.getLatestMessageIdLong() != giveaway.getMessageId();
+                // Force disable jump links if they're disabled in a guild setting
+                if (!settingService.get(Settings.DISPLAY_JUMP_LINKS, channel.getGuild())) {
+                    includeLink = false;
+                }
+                List<CompletableFuture<Message>> sent = generateEndMessage(giveaway, winners,
+                    includeLink).stream()
+                    .map(msg -> discordRequestService.submit(channel.getIdLong(),
+                        RequestClass.ANNOUNCEMENT, () -> channel.sendMessage(msg)
+                            .allowedMentions(END_MESSAGE_ALLOWED_MENTIONS)
+                            .mentionUsers(winners.toArray(new String[0]))))
+                    .collect(Collectors.toList());
+                // Timed once the first message, which names the first winners, has been sent
+                Timer timer = prepared != null ? preparedAnnouncementTimer : announcementTimer;
+                long endsAt = giveaway.getEndsAt().getTime();
+                sent.get(0).thenRun(() -> timer
+                    .record(System.currentTimeMillis() - endsAt, TimeUnit.MILLISECONDS));
+                giveaway.setState(GiveawayState.ENDED);
+                giveawayRenderService.render(giveaway, RenderPriority.STATE);
             } catch (Exception e) {
                 log.error("Error ending giveaway {}", giveaway, e);
             } finally {
                 giveaway.setState(GiveawayState.ENDED);
+                endLagTimer.record(System.currentTimeMillis() - giveaway.getEndsAt().getTime(),
+                    TimeUnit.MILLISECONDS);
                 GiveawayEntity saved = giveawayRepository.save(giveaway);
-                entityCache.remove(giveaway.getMessageId());
                 publisher.publishEvent(new GiveawayEndedEvent(saved));
                 endingGiveaways.remove(giveaway.getId());
+                endLeaseService.release(giveaway);
                 giveawaysEndedCounter.increment();
             }
         });
     }
 
+    /**
+     * Acquires the lease to end the giveaway and makes sure it has not already been ended by
+     * another process
+     *
+     * @param giveaway The giveaway
+     *
+     * @return True if this process should end the giveaway
+     */
+    private boolean acquireEnd(GiveawayEntity giveaway) {
+        if (!endLeaseService.acquire(giveaway)) {
+            // Try again once the lease could have expired, in case its holder dies before ending
+            // the giveaway
+            log.debug("Not ending {}, another process is ending it", giveaway);
+            giveawayScheduleService.retry(giveaway, endLeaseService.getTtl());
+            return false;
+        }
+        boolean running;
+        try {
+            running = giveawayRepository.findById(giveaway.getId())
+                .map(current -> current.getState() == GiveawayState.RUNNING).orElse(false);
+        } catch (RuntimeException e) {
+            endLeaseService.release(giveaway);
+            throw e;
+        }
+        if (!running) {
+            log.debug("Not ending {}, it has already ended", giveaway);
+            endLeaseService.release(giveaway);
+            giveawayScheduleService.cancel(giveaway);
+        }
+        return running;
+    }
+
     /**
      * Checks if the given reaction emote is the giveaway reaction emote
      *
@@ -580,20 +795,13 @@ public class GiveawayManager implements GiveawayService {
             return; // Ignore bots
         }
         if (isGiveawayEmote(event.getGuild(), event.getReactionEmote())) {
-            GiveawayEntity cached = entityCache.get(event.getMessageId());
-            if (cached == null) {
-                log.debug("Cache miss. Looking up giveaway entity");
-                Optional<GiveawayEntity> e = giveawayRepository
-                    .findByMessageId(event.getMessageId());
-                if (e.isPresent()) {
-                    cached = e.get();
-                } else {
-                    log.debug("Could not find giveaway for {}", event.getMessageId());
-                    return;
-                }
-                entityCache.put(event.getMessageId(), cached);
+            Optional<GiveawayEntity> cached = giveawayCacheService
+                .getByMessageId(event.getMessageIdLong());
+            if (cached.isEmpty()) {
+                log.debug("Could not find giveaway for {}", event.getMessageId());
+                return;
             }
-            enterGiveaway(event.getUser(), cached);
+            enterGiveaway(event.getUser(), cached.get());
         }
     }
 
@@ -607,7 +815,7 @@ public class GiveawayManager implements GiveawayService {
         }
         String action = id[0];
         String giveaway = id[1];
-        Optional<GiveawayEntity> e = giveawayRepository.findById(Long.parseLong(giveaway));
+        Optional<GiveawayEntity> e = giveawayCacheService.getById(Long.parseLong(giveaway));
         if (e.isEmpty()) {
             log.warn("Giveaway with {} not found", giveaway);
             return;
@@ -615,11 +823,11 @@ public class GiveawayManager implements GiveawayService {
         GiveawayEntity ge = e.get();
         if (action.equals("enter")) {
             event.reply("You have been entered into " + ge.getName()).setEphemeral(true).queue();
-            enterGiveaway(event.getUser(), ge);
+            enterGiveaway(event.getUser(), ge,
+                event.getTimeCreated().toInstant().toEpochMilli());
         }
         if (action.equals("check")) {
-            boolean entered = entrantRepository
-                .existsByGiveawayAndUserId(ge, event.getUser().getId());
+            boolean entered = entrantMembershipService.isEntered(ge, event.getUser().getIdLong());
             if (entered) {
                 event.reply("You are entered into " + ge.getName()).setEphemeral(true).queue();
             } else {
@@ -634,22 +842,10 @@ public class GiveawayManager implements GiveawayService {
     @Transactional
     public void onMessageDelete(MessageDeleteEvent event) {
         try {
-            deleteGiveaway(event.getMessageId(), false);
+            deleteGiveaway(event.getMessageIdLong(), false);
         } catch (IllegalArgumentException e) {
             // Ignore
         }
     }
 
-    @EventListener
-    public void onReady(AllShardsReadyEvent event) {
-        log.debug("Bot is ready");
-        isReady = true;
-    }
-
-    @Scheduled(fixedDelay = 1000L)
-    public void updateStatGauges() {
-        log.trace("Updating gauges");
-        runningGiveawayGauge.set(giveawayRepository.countAllByState(GiveawayState.RUNNING));
-    }
-
 }
@@ -3,7 +3,9 @@ package com.mrkirby153.snowsgivingbot.services.impl;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
 import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
 import com.mrkirby153.snowsgivingbot.services.AdminLoggerService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayMigrationService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayScheduleService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -42,9 +44,11 @@ public class GiveawayMigrationManager implements GiveawayMigrationService {
     private final GiveawayService giveawayService;
     private final AdminLoggerService adminLoggerService;
     private final TaskScheduler taskScheduler;
+    private final GiveawayCacheService giveawayCacheService;
+    private final GiveawayScheduleService giveawayScheduleService;
 
     @Override
-    public long getVersion(String messageId) {
+    public long getVersion(long messageId) {
         Optional<GiveawayEntity> e = giveawayRepository.findByMessageId(messageId);
         return e.map(GiveawayEntity::getVersion).orElse(-1L);
     }
@@ -69,7 +73,9 @@ public class GiveawayMigrationManager implements GiveawayMigrationService {
                         + currentVersion + ": " + e.getMessage());
             }
         }
-        giveawayRepository.save(entity);
+        entity = giveawayRepository.save(entity);
+        giveawayCacheService.invalidate(entity);
+        giveawayScheduleService.schedule(entity);
         log.info("Migrated {} to v{} in {}", entity.getId(), entity.getVersion(),
             Time.format(1, System.currentTimeMillis() - start));
     }
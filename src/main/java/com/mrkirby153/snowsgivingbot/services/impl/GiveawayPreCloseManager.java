@@ -0,0 +1,110 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
+import com.mrkirby153.snowsgivingbot.event.EntrantsRecordedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
+import com.mrkirby153.snowsgivingbot.services.EntrantBufferService;
+import com.mrkirby153.snowsgivingbot.services.EntryIngestionService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayPreCloseService;
+import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
+import com.mrkirby153.snowsgivingbot.utils.GiveawayEmbedUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class GiveawayPreCloseManager implements GiveawayPreCloseService {
+
+    private final ShardManager shardManager;
+    private final EntrantRepository entrantRepository;
+    private final EntryIngestionService entryIngestionService;
+    private final EntrantBufferService entrantBufferService;
+    private final SettingService settingService;
+
+    private final Map<Long, PreparedEnd> prepared = new ConcurrentHashMap<>();
+    private final Timer prepareTimer;
+
+    public GiveawayPreCloseManager(ShardManager shardManager,
+        EntrantRepository entrantRepository, EntryIngestionService entryIngestionService,
+        EntrantBufferService entrantBufferService, SettingService settingService,
+        MeterRegistry meterRegistry) {
+        this.shardManager = shardManager;
+        this.entrantRepository = entrantRepository;
+        this.entryIngestionService = entryIngestionService;
+        this.entrantBufferService = entrantBufferService;
+        this.settingService = settingService;
+
+        this.prepareTimer = meterRegistry.timer("giveaway_pre_close");
+    }
+
+    @Override
+    public void prepare(GiveawayEntity giveaway) {
+        TextChannel channel = shardManager.getTextChannelById(giveaway.getChannelId());
+        if (channel == null || !channel.getGuild().getSelfMember()
+            .hasPermission(channel, Permission.MESSAGE_READ, Permission.MESSAGE_WRITE)) {
+            log.debug("Not preparing {}, the channel can't be used", giveaway);
+            return;
+        }
+        PreparedEnd end = new PreparedEnd(channel, giveaway.getEndsAt().getTime());
+        if (prepared.putIfAbsent(giveaway.getId(), end) != null) {
+            return;
+        }
+        log.debug("Preparing {} for ending", giveaway);
+        prepareTimer.record(() -> {
+            // The tail is collected from here on, so entrants flushed while the snapshot is taken
+            // are in at least one of them
+            entryIngestionService.drain(giveaway);
+            entrantBufferService.flush(giveaway);
+            long[] snapshot = entrantRepository.getEntrantIds(giveaway.getId());
+
+            // The giveaway is a copy loaded for the schedule, so rendering it as ending is safe
+            GiveawayState state = giveaway.getState();
+            giveaway.setState(GiveawayState.ENDING);
+            Message endingMessage = GiveawayEmbedUtils.renderMessage(giveaway, settingService);
+            giveaway.setState(state);
+
+            end.complete(snapshot, endingMessage);
+            log.debug("Prepared {} with {} entrants", giveaway, snapshot.length);
+        });
+    }
+
+    @Override
+    public Optional<PreparedEnd> take(GiveawayEntity giveaway) {
+        // A preparation that finished after a reschedule discarded it is for the old end time
+        return Optional.ofNullable(prepared.remove(giveaway.getId()))
+            .filter(end -> end.isComplete() && end.getEndsAt() == giveaway.getEndsAt().getTime());
+    }
+
+    @Override
+    public void discard(GiveawayEntity giveaway) {
+        if (prepared.remove(giveaway.getId()) != null) {
+            log.debug("Discarded the prepared end of {}", giveaway);
+        }
+    }
+
+    @EventListener
+    public void onEntrantsRecorded(EntrantsRecordedEvent event) {
+        PreparedEnd end = prepared.get(event.getGiveaway().getId());
+        if (end != null) {
+            end.addTail(event.getUserIds());
+        }
+    }
+
+    @EventListener
+    public void onGiveawayEnd(GiveawayEndedEvent event) {
+        prepared.remove(event.getGiveaway().getId());
+    }
+}
@@ -0,0 +1,242 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService;
+import com.mrkirby153.snowsgivingbot.services.DiscordRequestService.RequestClass;
+import com.mrkirby153.snowsgivingbot.services.EntrantCounterService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayRenderService;
+import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
+import com.mrkirby153.snowsgivingbot.services.setting.Settings;
+import com.mrkirby153.snowsgivingbot.utils.GiveawayEmbedUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.requests.restaction.MessageAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queues edits of giveaway messages with the {@link DiscordRequestService}, which sends one
+ * request per channel at a time. A render replaces the giveaway's render that is still waiting,
+ * and the message is only rendered once the edit is sent. Renders are made from a copy of the
+ * giveaway taken when they are queued, as the caller keeps modifying its entity.
+ * <p>
+ * The last rendered message of each giveaway is cached, keyed by the giveaway's id, and reused
+ * as long as everything it shows is unchanged
+ */
+@Service
+@Slf4j
+public class GiveawayRenderManager implements GiveawayRenderService {
+
+    private final ShardManager shardManager;
+    private final SettingService settingService;
+    private final EntrantCounterService entrantCounterService;
+    private final DiscordRequestService discordRequestService;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, ChannelDepth> depths = new ConcurrentHashMap<>();
+    private final Cache<Long, CachedRender> renderCache = CacheBuilder.newBuilder()
+        .maximumSize(1000).expireAfterAccess(10, TimeUnit.MINUTES).recordStats().build();
+    private final Counter coalescedCounter;
+    private final Counter retrieveSavedCounter;
+    private final Map<RenderPriority, Timer> latencyTimers = new EnumMap<>(RenderPriority.class);
+
+    public GiveawayRenderManager(ShardManager shardManager, SettingService settingService,
+        EntrantCounterService entrantCounterService, DiscordRequestService discordRequestService,
+        MeterRegistry meterRegistry) {
+        this.shardManager = shardManager;
+        this.settingService = settingService;
+        this.entrantCounterService = entrantCounterService;
+        this.discordRequestService = discordRequestService;
+        this.meterRegistry = meterRegistry;
+
+        this.coalescedCounter = meterRegistry
+            .counter("giveaway_render_rest_saved", "reason", "coalesced");
+        this.retrieveSavedCounter = meterRegistry
+            .counter("giveaway_render_rest_saved", "reason", "retrieve");
+        GuavaCacheMetrics.monitor(meterRegistry, renderCache, "giveaway_render_cache");
+        for (RenderPriority priority : RenderPriority.values()) {
+            latencyTimers.put(priority, Timer.builder("giveaway_render_latency")
+                .tag("priority", priority.name()).publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public void render(GiveawayEntity giveaway, RenderPriority priority) {
+        render(giveaway, null, priority);
+    }
+
+    @Override
+    public void render(GiveawayEntity giveaway, Message message, RenderPriority priority) {
+        long queuedAt = System.nanoTime();
+        GiveawayEntity snapshot = snapshot(giveaway);
+        long channelId = snapshot.getChannelId();
+        // Set once the edit is made by id, which skips retrieving the message first
+        AtomicBoolean retrieveSkipped = new AtomicBoolean();
+        updateDepth(channelId, 1);
+        discordRequestService.submit(channelId,
+            priority == RenderPriority.STATE ? RequestClass.STATE_RENDER : RequestClass.RENDER,
+            "render:" + snapshot.getId(), () -> {
+                MessageAction edit = edit(channelId, snapshot, message);
+                retrieveSkipped.set(edit != null);
+                return edit;
+            })
+            .whenComplete((m, e) -> {
+                updateDepth(channelId, -1);
+                if (e instanceof CancellationException) {
+                    log.trace("Collapsed render of {} into a later render", snapshot);
+                    coalescedCounter.increment();
+                } else if (e != null) {
+                    log.debug("Could not render {}", snapshot, e);
+                } else if (retrieveSkipped.get()) {
+                    retrieveSavedCounter.increment();
+                    latencyTimers.get(priority)
+                        .record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+    }
+
+    @Override
+    public Message renderMessage(GiveawayEntity giveaway, long entrants) {
+        boolean useButtons = settingService.get(Settings.USE_BUTTONS, giveaway.getGuildId());
+        boolean displayEntrants = giveaway.getState() != GiveawayState.ENDING && settingService
+            .get(Settings.DISPLAY_ENTRANT_COUNT, giveaway.getGuildId());
+        RenderKey key = new RenderKey(giveaway.getState(), giveaway.getName(),
+            giveaway.getEndsAt().getTime(), giveaway.getHost(), giveaway.getWinners(),
+            Arrays.asList(giveaway.getFinalWinners()), giveaway.isSecret(), useButtons,
+            displayEntrants ? entrants : -1);
+        CachedRender cached = renderCache.getIfPresent(giveaway.getId());
+        if (cached != null && cached.getKey().equals(key)) {
+            return cached.getMessage();
+        }
+        Message message = GiveawayEmbedUtils
+            .renderMessage(giveaway, useButtons, displayEntrants, entrants);
+        renderCache.put(giveaway.getId(), new CachedRender(key, message));
+        return message;
+    }
+
+    @Override
+    public void invalidate(GiveawayEntity giveaway) {
+        renderCache.invalidate(giveaway.getId());
+    }
+
+    /**
+     * Copies everything a render reads from the giveaway
+     *
+     * @param giveaway The giveaway
+     *
+     * @return A copy of the giveaway that is only read by the render
+     */
+    private static GiveawayEntity snapshot(GiveawayEntity giveaway) {
+        GiveawayEntity snapshot = new GiveawayEntity();
+        snapshot.setId(giveaway.getId());
+        snapshot.setName(giveaway.getName());
+        snapshot.setHost(giveaway.getHost());
+        snapshot.setGuildId(giveaway.getGuildId());
+        snapshot.setChannelId(giveaway.getChannelId());
+        snapshot.setMessageId(giveaway.getMessageId());
+        snapshot.setWinners(giveaway.getWinners());
+        snapshot.setEntrantCount(giveaway.getEntrantCount());
+        snapshot.setSecret(giveaway.isSecret());
+        snapshot.setEndsAt(new Timestamp(giveaway.getEndsAt().getTime()));
+        snapshot.setState(giveaway.getState());
+        snapshot.setFinalWinners(giveaway.getFinalWinners());
+        return snapshot;
+    }
+
+    /**
+     * Updates the amount of queued renders in the channel. The channel's gauge is removed once
+     * it has nothing queued
+     *
+     * @param channelId The channel
+     * @param delta     The change in queued renders
+     */
+    private void updateDepth(long channelId, int delta) {
+        depths.compute(channelId, (id, depth) -> {
+            if (depth == null) {
+                depth = new ChannelDepth();
+                depth.gauge = Gauge.builder("giveaway_render_queue_depth", depth.queued,
+                    AtomicLong::get).tag("channel", Long.toString(id)).register(meterRegistry);
+            }
+            if (depth.queued.addAndGet(delta) <= 0) {
+                meterRegistry.remove(depth.gauge);
+                return null;
+            }
+            return depth;
+        });
+    }
+
+    /**
+     * Creates the edit of the giveaway's message
+     *
+     * @param channelId The channel the giveaway is in
+     * @param giveaway  The giveaway
+     * @param message   The rendered message, or null to render the giveaway
+     *
+     * @return The edit, or null if the channel is gone or the bot cannot send messages in it
+     */
+    private MessageAction edit(long channelId, GiveawayEntity giveaway, Message message) {
+        TextChannel channel = shardManager.getTextChannelById(channelId);
+        if (channel == null || !channel.getGuild().getSelfMember()
+            .hasPermission(channel, Permission.MESSAGE_WRITE, Permission.MESSAGE_READ)) {
+            log.debug("Not rendering {}. Channel not found or missing permissions", giveaway);
+            return null;
+        }
+        log.debug("Rendering {}", giveaway);
+        Message rendered = message != null ? message
+            : renderMessage(giveaway, entrantCounterService.getCount(giveaway));
+        return channel.editMessageById(giveaway.getMessageId(), rendered);
+    }
+
+    /**
+     * Everything that affects how a giveaway is rendered
+     */
+    @Value
+    private static class RenderKey {
+
+        GiveawayState state;
+        String name;
+        long endsAt;
+        Long host;
+        int winners;
+        List<String> finalWinners;
+        boolean secret;
+        boolean useButtons;
+        long entrants;
+    }
+
+    @Value
+    private static class CachedRender {
+
+        RenderKey key;
+        Message message;
+    }
+
+    private static class ChannelDepth {
+
+        private final AtomicLong queued = new AtomicLong();
+        private Gauge gauge;
+    }
+}
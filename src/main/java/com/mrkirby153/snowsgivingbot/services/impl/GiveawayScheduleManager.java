@@ -0,0 +1,210 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.event.AllShardsReadyEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.EndLeaseService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayPreCloseService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayScheduleService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+
+@Service
+@Slf4j
+public class GiveawayScheduleManager implements GiveawayScheduleService {
+
+    private final GiveawayRepository giveawayRepository;
+    private final GiveawayService giveawayService;
+    private final ThreadPoolTaskScheduler taskScheduler;
+
+    private final GiveawayPreCloseService giveawayPreCloseService;
+    private final EndLeaseService endLeaseService;
+    private final long preCloseMillis;
+
+    private final Map<Long, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    private final Map<Long, ScheduledFuture<?>> preparing = new ConcurrentHashMap<>();
+    private final Counter missedCounter;
+
+    private volatile boolean ready = false;
+
+    public GiveawayScheduleManager(GiveawayRepository giveawayRepository,
+        @Lazy GiveawayService giveawayService,
+        GiveawayPreCloseService giveawayPreCloseService, EndLeaseService endLeaseService,
+        @Value("${bot.giveaways.pre-close-seconds:10}") long preCloseSeconds,
+        @Value("${bot.giveaways.schedule-threads:2}") int scheduleThreads,
+        MeterRegistry meterRegistry) {
+        this.giveawayRepository = giveawayRepository;
+        this.giveawayService = giveawayService;
+
+        // Ends look their giveaway up before firing, so keep them off the shared scheduler that
+        // runs every @Scheduled job
+        this.taskScheduler = new ThreadPoolTaskScheduler();
+        this.taskScheduler.setPoolSize(scheduleThreads);
+        this.taskScheduler.setThreadNamePrefix("giveaway-schedule-");
+        this.taskScheduler.setDaemon(true);
+        this.taskScheduler.initialize();
+
+        this.giveawayPreCloseService = giveawayPreCloseService;
+        this.endLeaseService = endLeaseService;
+        this.preCloseMillis = TimeUnit.SECONDS.toMillis(preCloseSeconds);
+
+        Gauge.builder("giveaway_scheduled_ends", scheduled, Map::size).register(meterRegistry);
+        this.missedCounter = meterRegistry.counter("giveaway_missed_ends");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        taskScheduler.shutdown();
+    }
+
+    @Override
+    public void schedule(GiveawayEntity giveaway) {
+        if (giveaway.getState() != GiveawayState.RUNNING) {
+            cancel(giveaway);
+            return;
+        }
+        if (!ready) {
+            // Every running giveaway is scheduled once the shards are ready
+            return;
+        }
+        log.trace("Scheduling {} to end at {}", giveaway, giveaway.getEndsAt());
+        long id = giveaway.getId();
+        // A preparation made for the previous end time has a stale ending message and tail
+        giveawayPreCloseService.discard(giveaway);
+        // Replaced atomically, a task firing straight away can't remove its entry before it has
+        // been added
+        scheduled.compute(id, (key, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return taskScheduler.schedule(() -> fire(id), giveaway.getEndsAt().toInstant());
+        });
+        schedulePreClose(giveaway);
+    }
+
+    @Override
+    public void cancel(GiveawayEntity giveaway) {
+        ScheduledFuture<?> future = scheduled.remove(giveaway.getId());
+        if (future != null) {
+            log.trace("Unscheduling {}", giveaway);
+            future.cancel(false);
+        }
+        ScheduledFuture<?> preClose = preparing.remove(giveaway.getId());
+        if (preClose != null) {
+            preClose.cancel(false);
+        }
+        giveawayPreCloseService.discard(giveaway);
+    }
+
+    @Override
+    public void retry(GiveawayEntity giveaway, Duration delay) {
+        log.debug("Retrying the end of {} in {}", giveaway, delay);
+        long id = giveaway.getId();
+        scheduled.compute(id, (key, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return taskScheduler.schedule(() -> fire(id), Instant.now().plus(delay));
+        });
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bot.giveaways.end-reconcile-interval:60000}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        List<GiveawayEntity> missed = giveawayRepository
+            .findAllByEndsAtBeforeAndStateIs(new Timestamp(System.currentTimeMillis()),
+                GiveawayState.RUNNING);
+        missed.removeIf(giveaway -> scheduled.containsKey(giveaway.getId())
+            || !endLeaseService.isOwned(giveaway));
+        if (missed.isEmpty()) {
+            return;
+        }
+        log.warn("Ending {} giveaways that were missed by the schedule", missed.size());
+        missedCounter.increment(missed.size());
+        missed.forEach(giveawayService::endGiveaway);
+    }
+
+    @EventListener
+    public void onReady(AllShardsReadyEvent event) {
+        ready = true;
+        List<GiveawayEntity> running = giveawayRepository.findAllByState(GiveawayState.RUNNING);
+        // Other processes end the giveaways on their shards
+        running.removeIf(giveaway -> !endLeaseService.isOwned(giveaway));
+        log.info("Scheduling the end of {} running giveaways", running.size());
+        running.forEach(this::schedule);
+    }
+
+    @EventListener
+    public void onGiveawayStart(GiveawayStartedEvent event) {
+        schedule(event.getGiveaway());
+    }
+
+    @EventListener
+    public void onGiveawayEnd(GiveawayEndedEvent event) {
+        cancel(event.getGiveaway());
+    }
+
+    /**
+     * Schedules the preparation of the giveaway shortly before it ends. Giveaways already inside
+     * the window end without preparation
+     */
+    private void schedulePreClose(GiveawayEntity giveaway) {
+        long id = giveaway.getId();
+        long prepareAt = giveaway.getEndsAt().getTime() - preCloseMillis;
+        boolean prepare = preCloseMillis > 0 && prepareAt > System.currentTimeMillis();
+        preparing.compute(id, (key, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return prepare ? taskScheduler
+                .schedule(() -> prepare(id), Instant.ofEpochMilli(prepareAt)) : null;
+        });
+    }
+
+    private void prepare(long id) {
+        preparing.remove(id);
+        giveawayRepository.findById(id)
+            .filter(giveaway -> giveaway.getState() == GiveawayState.RUNNING)
+            .ifPresent(giveawayService::prepareEnd);
+    }
+
+    private void fire(long id) {
+        // The giveaway may have been changed since it was scheduled. It stays scheduled until it
+        // has ended so the reconciliation sweep does not end it a second time
+        GiveawayEntity giveaway = giveawayRepository.findById(id).orElse(null);
+        if (giveaway == null || giveaway.getState() != GiveawayState.RUNNING) {
+            scheduled.remove(id);
+            return;
+        }
+        if (giveaway.getEndsAt().getTime() > System.currentTimeMillis()) {
+            schedule(giveaway);
+            return;
+        }
+        giveawayService.endGiveaway(giveaway);
+    }
+}
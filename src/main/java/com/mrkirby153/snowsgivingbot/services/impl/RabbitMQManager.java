@@ -1,20 +1,26 @@
 package com.mrkirby153.snowsgivingbot.services.impl;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mrkirby153.snowsgivingbot.config.RabbitMQConfiguration;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
-import com.mrkirby153.snowsgivingbot.entity.GiveawayEntrantEntity;
 import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
 import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
 import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.event.EntrantsRecordedEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayEnterEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.EntrantMembershipService;
+import com.mrkirby153.snowsgivingbot.services.GiveawayCacheService;
 import com.mrkirby153.snowsgivingbot.services.GiveawayService.ConfiguredGiveawayEmote;
 import com.mrkirby153.snowsgivingbot.services.RabbitMQService;
 import com.mrkirby153.snowsgivingbot.services.StandaloneWorkerService;
 import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
 import com.mrkirby153.snowsgivingbot.services.setting.Settings;
+import com.mrkirby153.snowsgivingbot.utils.EntryPayload;
 import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
@@ -26,12 +32,14 @@ import net.dv8tion.jda.api.sharding.ShardManager;
 import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.DirectMessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
@@ -39,33 +47,65 @@ import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 @Service
 @Slf4j
 @ConditionalOnProperty("spring.rabbitmq.host")
 public class RabbitMQManager implements RabbitMQService {
 
+    /**
+     * Header marking a message published by the bot behind all pending entries of a queue
+     */
+    private static final String DRAIN_MARKER_HEADER = "x-drain-marker";
+
+    private static final String ENTRANT_QUEUE_PREFIX = "giveaway_entrants.";
+
     private final RabbitTemplate rabbitTemplate;
     private final SettingService settingService;
     private final StandaloneWorkerService standaloneWorkerService;
     private final AmqpAdmin amqpAdmin;
-    private final ConnectionFactory connectionFactory;
     private final GiveawayRepository giveawayRepository;
+    private final GiveawayCacheService giveawayCacheService;
     private final EntrantRepository entrantRepository;
+    private final EntrantMembershipService entrantMembershipService;
     private final ApplicationEventPublisher applicationEventPublisher;
     private final ShardManager shardManager;
     private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final long batchWait;
+    private final int maxBatchAttempts;
     private final Map<Long, RunningQueueWorker> runningQueues = new ConcurrentHashMap<>();
 
+    private final ThreadPoolExecutor consumerExecutor;
+    private final ScheduledExecutorService flushExecutor;
+    private final CachingConnectionFactory consumerConnectionFactory;
+    private final DirectMessageListenerContainer container;
+
+    private final Counter giveawayEntrantsCounter;
+    private final Counter lateEntriesCounter;
+    private final DistributionSummary binaryPayloadSummary;
+    private final DistributionSummary legacyPayloadSummary;
     private final AtomicLong totalQueueDepth;
     private final Map<Long, AtomicLong> queueDepth = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Void>> drainFutures = new ConcurrentHashMap<>();
 
     private int prefetchCount = 100;
 
@@ -73,24 +113,80 @@ public class RabbitMQManager implements RabbitMQService {
         SettingService settingService,
         StandaloneWorkerService standaloneWorkerService,
         AmqpAdmin amqpAdmin,
-        ConnectionFactory connectionFactory,
+        CachingConnectionFactory connectionFactory,
         GiveawayRepository giveawayRepository,
+        GiveawayCacheService giveawayCacheService,
         EntrantRepository entrantRepository,
+        EntrantMembershipService entrantMembershipService,
         ApplicationEventPublisher applicationEventPublisher,
         ShardManager shardManager,
+        @Value("${bot.rabbitmq.consumer-threads:4}") int consumerThreads,
+        @Value("${bot.rabbitmq.batch-size:100}") int batchSize,
+        @Value("${bot.rabbitmq.batch-wait:250}") long batchWait,
+        @Value("${bot.rabbitmq.max-batch-attempts:5}") int maxBatchAttempts,
         MeterRegistry meterRegistry) {
         this.rabbitTemplate = rabbitTemplate;
         this.settingService = settingService;
         this.standaloneWorkerService = standaloneWorkerService;
         this.amqpAdmin = amqpAdmin;
-        this.connectionFactory = connectionFactory;
         this.giveawayRepository = giveawayRepository;
+        this.giveawayCacheService = giveawayCacheService;
         this.entrantRepository = entrantRepository;
+        this.entrantMembershipService = entrantMembershipService;
         this.applicationEventPublisher = applicationEventPublisher;
         this.shardManager = shardManager;
         this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.batchWait = batchWait;
+        this.maxBatchAttempts = maxBatchAttempts;
 
+        giveawayEntrantsCounter = meterRegistry.counter("giveaway_entrants");
         totalQueueDepth = meterRegistry.gauge("rabbit_queue_depth", new AtomicLong(0));
+        lateEntriesCounter = meterRegistry.counter("rabbit_entries_late");
+        binaryPayloadSummary = meterRegistry
+            .summary("rabbit_entry_bytes_per_entry", "format", "binary");
+        legacyPayloadSummary = meterRegistry
+            .summary("rabbit_entry_bytes_per_entry", "format", "legacy");
+
+        // All entrant queues are consumed by one container on a dedicated connection, so the
+        // amount of consumer threads does not grow with the amount of standalone giveaways
+        this.consumerExecutor = new ThreadPoolExecutor(consumerThreads, consumerThreads, 60,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("rabbit-consumer-%d").setDaemon(true)
+                .build());
+        // Partial batches are flushed on their own threads, so recording them never holds up the
+        // shared task scheduler
+        this.flushExecutor = Executors.newScheduledThreadPool(consumerThreads,
+            new ThreadFactoryBuilder().setNameFormat("rabbit-flush-%d").setDaemon(true).build());
+        this.consumerConnectionFactory = new CachingConnectionFactory(
+            connectionFactory.getRabbitConnectionFactory());
+        this.consumerConnectionFactory.setExecutor(consumerExecutor);
+        this.container = new DirectMessageListenerContainer(consumerConnectionFactory);
+        this.container.setMessageListener(new EntryHandler(this));
+        this.container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        this.container.setPrefetchCount(prefetchCount);
+        // A single consumer per queue keeps entries in order behind drain markers
+        this.container.setConsumersPerQueue(1);
+        this.container.setMissingQueuesFatal(false);
+        this.container.setAmqpAdmin(amqpAdmin);
+
+        Gauge.builder("rabbit_consumer_threads", consumerExecutor, ThreadPoolExecutor::getPoolSize)
+            .register(meterRegistry);
+        Gauge.builder("rabbit_consumer_channels", runningQueues, Map::size)
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startContainer() {
+        container.start();
+    }
+
+    @PreDestroy
+    public void stopContainer() {
+        container.stop();
+        consumerConnectionFactory.destroy();
+        consumerExecutor.shutdown();
+        flushExecutor.shutdown();
     }
 
 
@@ -108,7 +204,7 @@ public class RabbitMQManager implements RabbitMQService {
         ConfiguredGiveawayEmote cge = settingService
             .get(Settings.GIVEAWAY_EMOTE, giveaway.getGuildId());
         rabbitTemplate.convertAndSend(RabbitMQConfiguration.GIVEAWAY_WORK_QUEUE,
-            new GiveawayStartMsg(giveaway.getId(), giveaway.getMessageId(),
+            new GiveawayStartMsg(giveaway.getId(), Long.toString(giveaway.getMessageId()),
                 cge != null ? cge.getEmote() : null));
         startQueueHandler(giveaway);
     }
@@ -122,12 +218,15 @@ public class RabbitMQManager implements RabbitMQService {
     @Override
     public void updatePrefetchCount(int newCount) {
         this.prefetchCount = newCount;
-        runningQueues.forEach((id, worker) -> {
-            worker.container.setPrefetchCount(newCount);
-            // Do we need to restart the container? probably
-            worker.container.stop();
-            worker.container.start();
+        // The prefetch count is applied when consumers are created, so restart the container once
+        container.setPrefetchCount(newCount);
+        // Pending batches have to be acknowledged before their channels are closed
+        runningQueues.values().forEach(worker -> {
+            worker.batch.setMaxDeliveries(newCount);
+            worker.batch.flush();
         });
+        container.stop();
+        container.start();
     }
 
     /**
@@ -137,7 +236,7 @@ public class RabbitMQManager implements RabbitMQService {
      */
     @Override
     public void startAll(Guild guild) {
-        giveawayRepository.findAllByGuildIdAndState(guild.getId(), GiveawayState.RUNNING)
+        giveawayRepository.findAllByGuildIdAndState(guild.getIdLong(), GiveawayState.RUNNING)
             .forEach(this::startQueueHandler);
     }
 
@@ -148,7 +247,7 @@ public class RabbitMQManager implements RabbitMQService {
 
     @Override
     public long queueSize(long giveawayId) {
-        String key = String.format("giveaway_entrants.%d", giveawayId);
+        String key = ENTRANT_QUEUE_PREFIX + giveawayId;
         Properties properties = amqpAdmin.getQueueProperties(key);
         if (properties == null) {
             return 0;
@@ -163,6 +262,31 @@ public class RabbitMQManager implements RabbitMQService {
         return l;
     }
 
+    @Override
+    public CompletableFuture<Void> awaitDrained(GiveawayEntity entity) {
+        RunningQueueWorker worker = runningQueues.get(entity.getId());
+        if (worker == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> existing = drainFutures.putIfAbsent(entity.getId(), future);
+        if (existing != null) {
+            return existing;
+        }
+        // Queues are consumed in order, so every entry ahead of the marker has been processed once
+        // it is received. Published outside the map so the broker round trip holds no lock
+        log.debug("Publishing drain marker to {}", worker.queue.getName());
+        try {
+            rabbitTemplate.send("", worker.queue.getName(),
+                MessageBuilder.withBody(new byte[0]).setHeader(DRAIN_MARKER_HEADER, true)
+                    .build());
+        } catch (Exception e) {
+            drainFutures.remove(entity.getId(), future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     @EventListener
     public void onGiveawayEnd(GiveawayEndedEvent event) {
         if (!standaloneWorkerService.isStandalone(event.getGiveaway().getGuildId())) {
@@ -181,6 +305,12 @@ public class RabbitMQManager implements RabbitMQService {
             meterRegistry.remove(g);
         }
         queueDepth.remove(event.getGiveaway().getId());
+        Counter consumed = meterRegistry.find("giveaway_queue_consumed")
+            .tags(Collections.singletonList(Tag.of("id",
+                String.valueOf(event.getGiveaway().getId())))).counter();
+        if (consumed != null) {
+            meterRegistry.remove(consumed);
+        }
     }
 
     @Scheduled(fixedRate = 1000)
@@ -203,27 +333,127 @@ public class RabbitMQManager implements RabbitMQService {
             return;
         }
         log.debug("Starting queue handler for {}", entity);
-        String queueName = String.format("giveaway_entrants.%d", entity.getId());
-        Queue queue = new Queue(queueName);
+        Queue queue = new Queue(ENTRANT_QUEUE_PREFIX + entity.getId());
         amqpAdmin.declareQueue(queue);
-        SimpleMessageListenerContainer smlc = new SimpleMessageListenerContainer();
-        smlc.setMessageListener(new EntryHandler(entity, this));
-        smlc.setAcknowledgeMode(AcknowledgeMode.MANUAL);
-        smlc.setPrefetchCount(prefetchCount);
-        smlc.setConnectionFactory(connectionFactory);
-        smlc.setQueueNames(queueName);
-        smlc.setAmqpAdmin(amqpAdmin);
-        smlc.start();
-        this.runningQueues.put(entity.getId(), new RunningQueueWorker(queue, smlc));
+        Counter consumed = meterRegistry
+            .counter("giveaway_queue_consumed", "id", String.valueOf(entity.getId()));
+        EntryBatcher batch = new EntryBatcher(queue.getName(), batchSize, batchWait,
+            maxBatchAttempts, flushExecutor, userIds -> record(entity, userIds), meterRegistry);
+        batch.setMaxDeliveries(prefetchCount);
+        this.runningQueues
+            .put(entity.getId(), new RunningQueueWorker(queue, entity, consumed, batch));
+        container.addQueueNames(queue.getName());
     }
 
     private void stopQueueHandler(GiveawayEntity entity) {
         log.debug("Stopping queue handler for {}", entity);
         RunningQueueWorker worker = runningQueues.remove(entity.getId());
         if (worker != null) {
-            worker.container.stop();
+            worker.batch.flush();
+            container.removeQueueNames(worker.queue.getName());
             amqpAdmin.deleteQueue(worker.queue.getName());
         }
+        completeDrain(entity.getId());
+    }
+
+    /**
+     * Adds the entries in the payload to the worker's batch. Entries made after the giveaway
+     * ended are dropped
+     *
+     * @param worker      The worker the entries were delivered to
+     * @param body        The entry payload
+     * @param deliveryTag The delivery tag of the payload
+     * @param channel     The channel the payload was delivered on
+     *
+     * @throws IllegalArgumentException If the payload is malformed
+     */
+    private void enqueue(RunningQueueWorker worker, byte[] body, long deliveryTag,
+        Channel channel) {
+        long timestamp = EntryPayload.getTimestamp(body);
+        if (timestamp >= 0 && timestamp > getEndsAt(worker.giveaway)) {
+            log.debug("Dropping entries into {} made after it ended", worker.giveaway);
+            lateEntriesCounter.increment();
+            worker.batch.skip(channel, deliveryTag);
+            return;
+        }
+        int entries = worker.batch.add(channel, deliveryTag, body);
+        worker.consumed.increment(entries);
+        if (entries > 0) {
+            (EntryPayload.isBinary(body) ? binaryPayloadSummary : legacyPayloadSummary)
+                .record((double) body.length / entries);
+        }
+    }
+
+    /**
+     * Gets when the giveaway currently ends. The worker's copy of the giveaway is from when its
+     * queue was started, so it misses later changes to the end time
+     *
+     * @param giveaway The giveaway
+     *
+     * @return The end time in epoch millis
+     */
+    private long getEndsAt(GiveawayEntity giveaway) {
+        return giveawayCacheService.getById(giveaway.getId()).orElse(giveaway).getEndsAt()
+            .getTime();
+    }
+
+    /**
+     * Enters the users into the giveaway, skipping duplicates and users who have already entered
+     *
+     * @param giveaway The giveaway
+     * @param userIds  The ids of the users entering
+     */
+    private void record(GiveawayEntity giveaway, List<Long> userIds) {
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (long userId : userIds) {
+            if (!entrantMembershipService.isEntered(giveaway, userId)) {
+                candidates.add(userId);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        List<Long> toInsert = new ArrayList<>(candidates);
+        boolean[] inserted = entrantRepository.batchInsert(giveaway.getId(), toInsert);
+        List<Long> recorded = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                recorded.add(toInsert.get(i));
+            }
+        }
+        log.debug("Recorded {} of {} entries into {}", recorded.size(), userIds.size(), giveaway);
+        if (recorded.isEmpty()) {
+            return;
+        }
+        recorded.forEach(userId -> entrantMembershipService.add(giveaway, userId));
+        giveawayEntrantsCounter.increment(recorded.size());
+        applicationEventPublisher.publishEvent(new EntrantsRecordedEvent(giveaway, recorded));
+        recorded.forEach(userId -> shardManager.retrieveUserById(userId).queue(user -> {
+            log.debug("Dispatching GiveawayEnterEvent for {} and {}", user, giveaway);
+            applicationEventPublisher.publishEvent(new GiveawayEnterEvent(user, giveaway));
+        }));
+    }
+
+    /**
+     * Gets the worker consuming the queue
+     *
+     * @param queueName The name of the queue
+     *
+     * @return The worker, or null if the queue is no longer being consumed
+     */
+    private RunningQueueWorker getWorker(String queueName) {
+        if (queueName == null || !queueName.startsWith(ENTRANT_QUEUE_PREFIX)) {
+            return null;
+        }
+        return runningQueues
+            .get(Long.parseLong(queueName.substring(ENTRANT_QUEUE_PREFIX.length())));
+    }
+
+    private void completeDrain(long giveawayId) {
+        CompletableFuture<Void> future = drainFutures.remove(giveawayId);
+        if (future != null) {
+            future.complete(null);
+        }
     }
 
     @Data
@@ -238,43 +468,41 @@ public class RabbitMQManager implements RabbitMQService {
     private static class RunningQueueWorker {
 
         private final Queue queue;
-        private final SimpleMessageListenerContainer container;
+        private final GiveawayEntity giveaway;
+        private final Counter consumed;
+        private final EntryBatcher batch;
     }
 
     @RequiredArgsConstructor
     @Slf4j
     private static class EntryHandler implements ChannelAwareMessageListener {
 
-        private final GiveawayEntity giveaway;
         private final RabbitMQManager service;
 
         @Override
         public void onMessage(Message message, Channel channel) throws Exception {
             log.trace("Received message {}", message);
+            RunningQueueWorker worker = service
+                .getWorker(message.getMessageProperties().getConsumerQueue());
+            if (worker == null) {
+                log.debug("Discarding {}, its queue is no longer being consumed", message);
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+                return;
+            }
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            if (message.getMessageProperties().getHeader(DRAIN_MARKER_HEADER) != null) {
+                // Everything ahead of the marker has to be recorded before the drain completes
+                worker.batch.flush();
+                log.debug("Queue for {} has been drained", worker.giveaway);
+                channel.basicAck(deliveryTag, false);
+                service.completeDrain(worker.giveaway.getId());
+                return;
+            }
             try {
-                final String userId = new String(message.getBody()).replaceAll("\"(.*)\"", "$1");
-                service.entrantRepository.asyncExistsByGiveawayAndUserId(giveaway, userId)
-                    .thenAccept(exists -> {
-                        if (!exists) {
-                            service.entrantRepository
-                                .save(new GiveawayEntrantEntity(giveaway, userId));
-                            service.shardManager.retrieveUserById(userId).queue(user -> {
-                                log.debug("Dispatching GiveawayEnterEvent for {} and {}", user,
-                                    giveaway);
-                                service.applicationEventPublisher
-                                    .publishEvent(new GiveawayEnterEvent(user, giveaway));
-                            });
-                        }
-                        try {
-                            channel
-                                .basicAck(message.getMessageProperties().getDeliveryTag(), false);
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
-
-            } catch (Exception e) {
-                log.error("Error processing entry", e);
+                service.enqueue(worker, message.getBody(), deliveryTag, channel);
+            } catch (IllegalArgumentException e) {
+                log.error("Discarding malformed entry {}", message, e);
+                channel.basicAck(deliveryTag, false);
             }
         }
     }
@@ -322,5 +550,10 @@ public class RabbitMQManager implements RabbitMQService {
         public Map<Long, Long> runningQueueSizes() {
             return Collections.emptyMap();
         }
+
+        @Override
+        public CompletableFuture<Void> awaitDrained(GiveawayEntity entity) {
+            return CompletableFuture.completedFuture(null);
+        }
     }
 }
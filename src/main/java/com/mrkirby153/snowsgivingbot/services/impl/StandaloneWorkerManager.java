@@ -70,7 +70,7 @@ public class StandaloneWorkerManager implements StandaloneWorkerService {
         log.info("Enabling standalone mode for {} ({})", guild.getName(), guild.getId());
         setOperations.add(STANDALONE_KEY, guild.getId());
         List<GiveawayEntity> giveaways = giveawayRepository
-            .findAllByGuildIdAndState(guild.getId(), GiveawayState.RUNNING);
+            .findAllByGuildIdAndState(guild.getIdLong(), GiveawayState.RUNNING);
         log.debug("Assigning {} giveaways to workers", giveaways.size());
         giveaways.forEach(this::sendToWorker);
         standaloneCache.invalidate(guild.getId());
@@ -86,7 +86,7 @@ public class StandaloneWorkerManager implements StandaloneWorkerService {
         log.info("Disabling standalone mode for {} ({})", guild.getName(), guild.getId());
         setOperations.remove(STANDALONE_KEY, guild.getId());
         List<GiveawayEntity> giveaways = giveawayRepository
-            .findAllByGuildIdAndState(guild.getId(), GiveawayState.RUNNING);
+            .findAllByGuildIdAndState(guild.getIdLong(), GiveawayState.RUNNING);
         log.debug("Unassigning {} giveaways from workers", giveaways.size());
         giveaways.forEach(this::removeFromWorker);
         standaloneCache.invalidate(guild.getId());
@@ -107,6 +107,11 @@ public class StandaloneWorkerManager implements StandaloneWorkerService {
         return false;
     }
 
+    @Override
+    public Boolean isStandalone(long id) {
+        return isStandalone(Long.toString(id));
+    }
+
     @Override
     public void sendToWorker(GiveawayEntity giveaway) {
         log.debug("Assigning giveaway to worker {}", giveaway);
@@ -142,7 +147,7 @@ public class StandaloneWorkerManager implements StandaloneWorkerService {
                 Collectors.toList())));
         log.debug("{} distributed giveaways across workers", distributedGiveaways.size());
         List<Long> storedGiveaways = giveawayRepository
-            .findAllByGuildIdAndState(guild.getId(), GiveawayState.RUNNING).stream()
+            .findAllByGuildIdAndState(guild.getIdLong(), GiveawayState.RUNNING).stream()
             .map(GiveawayEntity::getId).collect(
                 Collectors.toList());
         log.debug("{} running stored giveaways", storedGiveaways.size());
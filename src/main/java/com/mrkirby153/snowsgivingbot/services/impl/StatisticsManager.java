@@ -0,0 +1,211 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
+import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
+import com.mrkirby153.snowsgivingbot.event.EntrantsRecordedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
+import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.StandaloneWorkerService;
+import com.mrkirby153.snowsgivingbot.services.StatisticsService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class StatisticsManager implements StatisticsService {
+
+    private static final String MODE_STANDALONE = "standalone";
+    private static final String MODE_BOT = "bot";
+
+    private final GiveawayRepository giveawayRepository;
+    private final EntrantRepository entrantRepository;
+    private final StandaloneWorkerService standaloneWorkerService;
+    private final ShardManager shardManager;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong giveaways;
+    private final AtomicLong entrants;
+
+    /**
+     * The mode of every running giveaway, keyed by id. Tracking ids keeps repeated start and end
+     * events from being counted twice
+     */
+    private final Map<Long, String> running = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> runningByMode = new HashMap<>();
+    private final Map<GiveawayState, AtomicLong> giveawaysByState = new EnumMap<>(
+        GiveawayState.class);
+    private final Map<Integer, AtomicLong> shardGuilds = new ConcurrentHashMap<>();
+
+    private final AtomicLong shardCount;
+    private final AtomicLong queuedShards;
+
+    public StatisticsManager(GiveawayRepository giveawayRepository,
+        EntrantRepository entrantRepository, StandaloneWorkerService standaloneWorkerService,
+        ShardManager shardManager, MeterRegistry meterRegistry) {
+        this.giveawayRepository = giveawayRepository;
+        this.entrantRepository = entrantRepository;
+        this.standaloneWorkerService = standaloneWorkerService;
+        this.shardManager = shardManager;
+        this.meterRegistry = meterRegistry;
+
+        this.giveaways = meterRegistry.gauge("total_giveaways", new AtomicLong(0));
+        this.entrants = meterRegistry.gauge("total_entrants", new AtomicLong(0));
+
+        Gauge.builder("running_giveaways", running, Map::size).register(meterRegistry);
+        for (String mode : new String[]{MODE_STANDALONE, MODE_BOT}) {
+            runningByMode.put(mode, meterRegistry.gauge("running_giveaways_by_mode",
+                Collections.singletonList(Tag.of("mode", mode)), new AtomicLong(0)));
+        }
+        for (GiveawayState state : GiveawayState.values()) {
+            if (state == GiveawayState.RUNNING) {
+                continue;
+            }
+            giveawaysByState.put(state, meterRegistry.gauge("giveaways_by_state",
+                Collections.singletonList(Tag.of("state", state.name())),
+                new AtomicLong(0)));
+        }
+        Gauge.builder("giveaways_by_state", running, Map::size).tag("state", "RUNNING")
+            .register(meterRegistry);
+
+        Gauge.builder("guild_count", shardGuilds,
+            guilds -> guilds.values().stream().mapToLong(AtomicLong::get).sum())
+            .register(meterRegistry);
+        this.shardCount = meterRegistry.gauge("shard_count", new AtomicLong(0));
+        this.queuedShards = meterRegistry.gauge("queued_shards", new AtomicLong(0));
+    }
+
+    @Override
+    public long getGiveawayCount() {
+        return giveaways.get();
+    }
+
+    @Override
+    public long getEntrantCount() {
+        return entrants.get();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bot.statistics.reconcile-interval:600000}")
+    public void reconcile() {
+        log.debug("Reconciling statistics");
+        // The counts are taken as the new totals. Events recorded while counting may or may not
+        // be in them, so applying a difference could count them twice. Any that were missed are
+        // picked up by the next reconcile
+        giveaways.set(giveawayRepository.count());
+        entrants.set(entrantRepository.count());
+        giveawayRepository.countAllGroupedByState().forEach(row -> {
+            AtomicLong count = giveawaysByState.get((GiveawayState) row[0]);
+            if (count != null) {
+                count.set((Long) row[1]);
+            }
+        });
+        log.debug("Reconciled statistics: {} giveaways, {} entrants", giveaways.get(),
+            entrants.get());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bot.statistics.gauge-reconcile-interval:300000}")
+    public void reconcileGauges() {
+        log.debug("Reconciling gauges");
+        Map<Long, String> current = new HashMap<>();
+        giveawayRepository.findAllByState(GiveawayState.RUNNING)
+            .forEach(giveaway -> current.put(giveaway.getId(), getMode(giveaway)));
+        synchronized (running) {
+            running.clear();
+            running.putAll(current);
+            runningByMode.values().forEach(count -> count.set(0));
+            current.values().forEach(mode -> runningByMode.get(mode).incrementAndGet());
+        }
+        shardManager.getShards().forEach(this::updateShard);
+    }
+
+    @EventListener
+    public void onGiveawayStart(GiveawayStartedEvent event) {
+        giveaways.incrementAndGet();
+        GiveawayEntity giveaway = event.getGiveaway();
+        String mode = getMode(giveaway);
+        synchronized (running) {
+            if (running.put(giveaway.getId(), mode) == null) {
+                runningByMode.get(mode).incrementAndGet();
+            }
+        }
+    }
+
+    @EventListener
+    public void onGiveawayEnd(GiveawayEndedEvent event) {
+        GiveawayEntity giveaway = event.getGiveaway();
+        synchronized (running) {
+            String mode = running.remove(giveaway.getId());
+            if (mode == null) {
+                return;
+            }
+            runningByMode.get(mode).decrementAndGet();
+        }
+        // Deleted giveaways are also published as ended, but keep their previous state
+        if (giveaway.getState() == GiveawayState.ENDED) {
+            giveawaysByState.get(GiveawayState.ENDED).incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onEntrantsRecorded(EntrantsRecordedEvent event) {
+        entrants.addAndGet(event.getCount());
+    }
+
+    @EventListener
+    public void onShardReady(ReadyEvent event) {
+        updateShard(event.getJDA());
+        shardCount.set(shardManager.getShardsTotal());
+        queuedShards.set(shardManager.getShardsQueued());
+    }
+
+    @EventListener
+    public void onShardReconnect(ReconnectedEvent event) {
+        updateShard(event.getJDA());
+    }
+
+    @EventListener
+    public void onGuildJoin(GuildJoinEvent event) {
+        getShardGuilds(event.getJDA().getShardInfo().getShardId()).incrementAndGet();
+    }
+
+    @EventListener
+    public void onGuildLeave(GuildLeaveEvent event) {
+        getShardGuilds(event.getJDA().getShardInfo().getShardId()).decrementAndGet();
+    }
+
+    private void updateShard(JDA jda) {
+        getShardGuilds(jda.getShardInfo().getShardId()).set(jda.getGuildCache().size());
+    }
+
+    private AtomicLong getShardGuilds(int shard) {
+        return shardGuilds.computeIfAbsent(shard, id -> meterRegistry.gauge("shard_guild_count",
+            Collections.singletonList(Tag.of("shard", String.valueOf(id))),
+            new AtomicLong(0)));
+    }
+
+    private String getMode(GiveawayEntity giveaway) {
+        return Boolean.TRUE.equals(standaloneWorkerService.isStandalone(giveaway.getGuildId()))
+            ? MODE_STANDALONE : MODE_BOT;
+    }
+}
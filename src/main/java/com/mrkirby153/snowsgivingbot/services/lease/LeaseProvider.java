@@ -0,0 +1,39 @@
+package com.mrkirby153.snowsgivingbot.services.lease;
+
+import java.time.Duration;
+
+/**
+ * Storage for expiring leases shared between bot processes
+ */
+public interface LeaseProvider {
+
+    /**
+     * Acquires the lease if it is not held by anyone
+     *
+     * @param key   The key of the lease
+     * @param owner The process acquiring the lease
+     * @param ttl   How long the lease is held for unless renewed
+     *
+     * @return True if the lease was acquired
+     */
+    boolean tryAcquire(String key, String owner, Duration ttl);
+
+    /**
+     * Extends a lease held by the owner
+     *
+     * @param key   The key of the lease
+     * @param owner The process holding the lease
+     * @param ttl   How long the lease is held for from now
+     *
+     * @return True if the lease was renewed, false if the owner no longer holds it
+     */
+    boolean renew(String key, String owner, Duration ttl);
+
+    /**
+     * Releases a lease held by the owner. Leases held by other processes are left alone
+     *
+     * @param key   The key of the lease
+     * @param owner The process holding the lease
+     */
+    void release(String key, String owner);
+}
@@ -0,0 +1,59 @@
+package com.mrkirby153.snowsgivingbot.services.lease;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory leases for running a single process or testing without redis
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "bot.leases.provider", havingValue = "local")
+public class LocalLeaseProvider implements LeaseProvider {
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public LocalLeaseProvider() {
+        log.info("Using local leases");
+    }
+
+    @Override
+    public boolean tryAcquire(String key, String owner, Duration ttl) {
+        Lease lease = new Lease(owner, System.currentTimeMillis() + ttl.toMillis());
+        return leases.compute(key,
+            (k, existing) -> existing == null || existing.isExpired() ? lease : existing) == lease;
+    }
+
+    @Override
+    public boolean renew(String key, String owner, Duration ttl) {
+        Lease lease = new Lease(owner, System.currentTimeMillis() + ttl.toMillis());
+        return leases.computeIfPresent(key,
+            (k, existing) -> isHeldBy(existing, owner) ? lease : existing) == lease;
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        leases.computeIfPresent(key, (k, existing) -> isHeldBy(existing, owner) ? null : existing);
+    }
+
+    private boolean isHeldBy(Lease lease, String owner) {
+        return !lease.isExpired() && lease.getOwner().equals(owner);
+    }
+
+    @Data
+    private static class Lease {
+
+        private final String owner;
+        private final long expiresAt;
+
+        private boolean isExpired() {
+            return expiresAt < System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mrkirby153.snowsgivingbot.services.lease;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * Leases stored as expiring redis keys holding the owner
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "bot.leases.provider", havingValue = "redis", matchIfMissing = true)
+public class RedisLeaseProvider implements LeaseProvider {
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) else return 0 end",
+        Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+        Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisLeaseProvider(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        log.info("Using redis leases");
+    }
+
+    @Override
+    public boolean tryAcquire(String key, String owner, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, owner, ttl));
+    }
+
+    @Override
+    public boolean renew(String key, String owner, Duration ttl) {
+        Long result = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(key), owner,
+            Long.toString(ttl.toMillis()));
+        return result != null && result > 0;
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), owner);
+    }
+}
@@ -84,6 +84,11 @@ public class SettingManager implements SettingService {
         return existing.orElse(setting.getDefaultSetting());
     }
 
+    @Override
+    public <T> T get(GuildSetting<T> setting, long guildId) {
+        return get(setting, Long.toString(guildId));
+    }
+
     @Override
     @CacheEvict(cacheNames = "settings", key = "#p0.getKey()+'-'+#p1.getId()")
     @Transactional
@@ -44,6 +44,17 @@ public interface SettingService {
      */
     <T> T get(GuildSetting<T> setting, String guildId);
 
+    /**
+     * Gets a setting from a guild by the guild's id
+     *
+     * @param setting The setting to get
+     * @param guildId The guild to get the setting from
+     * @param <T>     The type of the setting
+     *
+     * @return The setting's value
+     */
+    <T> T get(GuildSetting<T> setting, long guildId);
+
     /**
      * Resets a setting on a guild to its default
      *
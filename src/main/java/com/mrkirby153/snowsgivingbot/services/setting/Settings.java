@@ -34,6 +34,11 @@ public class Settings {
      * <b>ALPHA:</b> This setting requires users to be in the support server to utilize
      */
     public static final BooleanSetting USE_BUTTONS = new BooleanSetting("buttons", false);
+    /**
+     * If the amount of entrants should be displayed on the giveaway embed
+     */
+    public static final BooleanSetting DISPLAY_ENTRANT_COUNT = new BooleanSetting("entrants",
+        false);
     /**
      * A list of alphas that this guild is a member of.
      */
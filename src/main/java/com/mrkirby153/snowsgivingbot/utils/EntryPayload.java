@@ -0,0 +1,119 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+/**
+ * Encodes and decodes the entries standalone workers publish to a giveaway's entrant queue.
+ * <p>
+ * Version 1 payloads start with the version byte and a flags byte, followed by the entry
+ * timestamp in epoch millis if {@link #FLAG_TIMESTAMP} is set, and then any number of user ids.
+ * All numbers are 8-byte little-endian. Anything else is treated as the legacy format, a single
+ * JSON encoded user id
+ */
+public class EntryPayload {
+
+    public static final byte VERSION_1 = 0x01;
+
+    /**
+     * The payload contains the time the entries were made
+     */
+    public static final int FLAG_TIMESTAMP = 0x01;
+
+    private static final int HEADER_LENGTH = 2;
+
+    /**
+     * Encodes the user ids into a version 1 payload
+     *
+     * @param userIds   The ids of the entering users
+     * @param timestamp The time the users entered in epoch millis, or -1 to omit it
+     *
+     * @return The payload
+     */
+    public static byte[] encode(long[] userIds, long timestamp) {
+        boolean hasTimestamp = timestamp >= 0;
+        ByteBuffer buffer = ByteBuffer
+            .allocate(HEADER_LENGTH + (hasTimestamp ? 8 : 0) + userIds.length * 8)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(VERSION_1).put((byte) (hasTimestamp ? FLAG_TIMESTAMP : 0));
+        if (hasTimestamp) {
+            buffer.putLong(timestamp);
+        }
+        for (long userId : userIds) {
+            buffer.putLong(userId);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Checks if the payload uses the compact binary format
+     *
+     * @param body The payload
+     *
+     * @return True if the payload is a version 1 payload
+     */
+    public static boolean isBinary(byte[] body) {
+        return body.length >= HEADER_LENGTH && body[0] == VERSION_1;
+    }
+
+    /**
+     * Gets the time the entries in the payload were made
+     *
+     * @param body The payload
+     *
+     * @return The time in epoch millis, or -1 if the payload does not contain it
+     */
+    public static long getTimestamp(byte[] body) {
+        if (!isBinary(body) || (body[1] & FLAG_TIMESTAMP) == 0 || body.length < HEADER_LENGTH + 8) {
+            return -1;
+        }
+        return ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN).getLong(HEADER_LENGTH);
+    }
+
+    /**
+     * Decodes the user ids in the payload without copying it. The payload is validated before any
+     * id is passed to the consumer
+     *
+     * @param body    The payload
+     * @param userIds Receives each user id in the payload
+     *
+     * @return The amount of user ids in the payload
+     *
+     * @throws IllegalArgumentException If the payload is malformed
+     */
+    public static int decode(byte[] body, LongConsumer userIds) {
+        if (!isBinary(body)) {
+            userIds.accept(decodeLegacy(body));
+            return 1;
+        }
+        int offset = HEADER_LENGTH + ((body[1] & FLAG_TIMESTAMP) != 0 ? 8 : 0);
+        if (body.length < offset || (body.length - offset) % 8 != 0) {
+            throw new IllegalArgumentException(
+                String.format("Malformed entry payload of %d bytes", body.length));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = offset; i < body.length; i += 8) {
+            userIds.accept(buffer.getLong(i));
+        }
+        return (body.length - offset) / 8;
+    }
+
+    /**
+     * Decodes a legacy payload, a user id that may be quoted
+     *
+     * @param body The payload
+     *
+     * @return The user id
+     */
+    private static long decodeLegacy(byte[] body) {
+        int start = 0;
+        int end = body.length;
+        if (end - start >= 2 && body[start] == '"' && body[end - 1] == '"') {
+            start++;
+            end--;
+        }
+        return Long.parseLong(new String(body, start, end - start, StandardCharsets.US_ASCII));
+    }
+}
@@ -12,13 +12,39 @@ import net.dv8tion.jda.api.interactions.components.Button;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class GiveawayEmbedUtils {
 
     public static Message renderMessage(GiveawayEntity entity, SettingService settingService) {
+        return renderMessage(entity, settingService, entity.getEntrantCount());
+    }
+
+    public static Message renderMessage(GiveawayEntity entity, SettingService settingService,
+        long entrants) {
+        boolean useButtons = settingService.get(Settings.USE_BUTTONS, entity.getGuildId());
+        boolean displayEntrants = entity.getState() != GiveawayState.ENDING && settingService
+            .get(Settings.DISPLAY_ENTRANT_COUNT, entity.getGuildId());
+        return renderMessage(entity, useButtons, displayEntrants, entrants);
+    }
+
+    /**
+     * Renders the giveaway's message with already resolved settings
+     *
+     * @param entity          The giveaway
+     * @param useButtons      If the giveaway is entered with buttons instead of a reaction
+     * @param displayEntrants If the entrant count is shown
+     * @param entrants        The entrant count
+     *
+     * @return The rendered message
+     */
+    public static Message renderMessage(GiveawayEntity entity, boolean useButtons,
+        boolean displayEntrants, long entrants) {
+        return render(entity, entity.getFinalWinners(), useButtons, displayEntrants, entrants);
+    }
+
+    private static Message render(GiveawayEntity entity, String[] winnerIds, boolean useButtons,
+        boolean displayEntrants, long entrants) {
         MessageBuilder mb = new MessageBuilder();
         EmbedBuilder eb = new EmbedBuilder();
 
@@ -29,7 +55,7 @@ public class GiveawayEmbedUtils {
         switch (entity.getState()) {
             case RUNNING:
                 eb.setColor(Color.GREEN);
-                if (settingService.get(Settings.USE_BUTTONS, entity.getGuildId())) {
+                if (useButtons) {
                     descBuilder.append("Click the buttons below to enter!");
                 } else {
                     descBuilder.append("Click the reaction below to enter!");
@@ -47,25 +73,25 @@ public class GiveawayEmbedUtils {
                 break;
             case ENDED:
                 eb.setColor(Color.RED);
-                if (entity.getFinalWinners().length == 0) {
+                if (winnerIds.length == 0) {
                     descBuilder.append("Giveaway has ended!\n\nCould not determine a winner :(");
                     if (entity.getHost() != null) {
                         descBuilder.append("\nHost: <@!").append(entity.getHost()).append(">");
                     }
                 } else {
                     if (!entity.isSecret()) {
-                        String[] winnerIds =
-                            entity.getFinalWinners() != null ? entity.getFinalWinners()
-                                : new String[0];
-                        String winners = Arrays.stream(winnerIds)
-                            .map(a -> "<@!" + a.trim() + ">").collect(Collectors.joining(" "));
-                        if (winners.length() > 1900) {
+                        if (MessageChunker.mentionsLength(winnerIds, " ") > 1900) {
                             descBuilder.append("Giveaway has ended!");
                         } else {
                             descBuilder.append("Giveaway has ended!\n\n");
                             descBuilder
                                 .append(winnerIds.length > 1 ? "**Winners:** " : "**Winner:** ");
-                            descBuilder.append(winners);
+                            for (int i = 0; i < winnerIds.length; i++) {
+                                if (i > 0) {
+                                    descBuilder.append(' ');
+                                }
+                                descBuilder.append("<@!").append(winnerIds[i].trim()).append('>');
+                            }
                         }
                         if (entity.getHost() != null) {
                             descBuilder.append("\nHost: <@!").append(entity.getHost())
@@ -87,13 +113,15 @@ public class GiveawayEmbedUtils {
                         + " | Ended at");
                 break;
         }
-        if (settingService.get(Settings.USE_BUTTONS, entity.getGuildId())) {
+        if (displayEntrants) {
+            descBuilder.append("\nEntrants: **").append(entrants).append("**");
+        }
+        if (useButtons) {
             setButtons(mb, entity);
         }
         eb.setDescription(descBuilder.toString());
 
         mb.setEmbed(eb.build());
-        mb.build();
         return mb.build();
     }
 
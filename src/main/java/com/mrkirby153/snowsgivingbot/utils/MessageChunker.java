@@ -0,0 +1,154 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into as few discord messages as possible. Each piece of text is appended whole,
+ * starting a new message if it does not fit in the current one
+ */
+public class MessageChunker {
+
+    public static final int MAX_MESSAGE_LENGTH = 2000;
+
+    private final int limit;
+    private final StringBuilder buffer;
+    private final List<String> messages = new ArrayList<>();
+    private String separator;
+
+    public MessageChunker() {
+        this(MAX_MESSAGE_LENGTH);
+    }
+
+    public MessageChunker(int limit) {
+        this.limit = limit;
+        this.buffer = new StringBuilder(limit);
+    }
+
+    /**
+     * Sets the separator written before the next piece of text. The separator is dropped if the
+     * text starts a new message
+     *
+     * @param separator The separator
+     *
+     * @return The chunker
+     */
+    public MessageChunker separator(String separator) {
+        this.separator = separator;
+        return this;
+    }
+
+    /**
+     * Appends the text
+     *
+     * @param text The text to append
+     *
+     * @return The chunker
+     *
+     * @throws IllegalArgumentException If the text does not fit into a single message
+     */
+    public MessageChunker append(CharSequence text) {
+        reserve(text.length());
+        buffer.append(text);
+        return this;
+    }
+
+    /**
+     * Appends the text followed by a newline
+     *
+     * @param line The line to append
+     *
+     * @return The chunker
+     *
+     * @throws IllegalArgumentException If the line does not fit into a single message
+     */
+    public MessageChunker appendLine(CharSequence line) {
+        reserve(line.length() + 1);
+        buffer.append(line).append('\n');
+        return this;
+    }
+
+    /**
+     * Appends a mention of the user
+     *
+     * @param userId The id of the user to mention
+     *
+     * @return The chunker
+     */
+    public MessageChunker appendMention(String userId) {
+        String id = userId.trim();
+        reserve(id.length() + 4);
+        buffer.append("<@!").append(id).append('>');
+        return this;
+    }
+
+    /**
+     * Appends mentions of the users, separated by the separator
+     *
+     * @param userIds   The ids of the users to mention
+     * @param separator The separator between mentions
+     *
+     * @return The chunker
+     */
+    public MessageChunker appendMentions(Iterable<String> userIds, String separator) {
+        boolean first = true;
+        for (String userId : userIds) {
+            if (!first) {
+                separator(separator);
+            }
+            appendMention(userId);
+            first = false;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the messages, including the one currently being built
+     *
+     * @return The messages
+     */
+    public List<String> build() {
+        flush();
+        return messages;
+    }
+
+    /**
+     * Calculates the length of the users' mentions joined by the separator without building them
+     *
+     * @param userIds   The ids of the users
+     * @param separator The separator between mentions
+     *
+     * @return The length of the mentions
+     */
+    public static int mentionsLength(String[] userIds, String separator) {
+        if (userIds.length == 0) {
+            return 0;
+        }
+        int length = separator.length() * (userIds.length - 1);
+        for (String userId : userIds) {
+            length += userId.trim().length() + 4;
+        }
+        return length;
+    }
+
+    private void reserve(int length) {
+        if (length > limit) {
+            throw new IllegalArgumentException(
+                String.format("Cannot fit %d characters into a message", length));
+        }
+        int separatorLength = separator != null ? separator.length() : 0;
+        if (buffer.length() + separatorLength + length > limit) {
+            flush();
+        } else if (separator != null && buffer.length() > 0) {
+            buffer.append(separator);
+        }
+        separator = null;
+    }
+
+    private void flush() {
+        if (buffer.length() > 0) {
+            messages.add(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+}
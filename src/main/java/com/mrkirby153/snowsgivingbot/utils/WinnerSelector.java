@@ -0,0 +1,35 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+public class WinnerSelector {
+
+    /**
+     * Picks winners from the provided candidates using a partial Fisher-Yates shuffle. Runs in
+     * O(n + k) and shuffles the candidates in place
+     *
+     * @param candidates The ids of all candidates. This array is modified
+     * @param amount     The amount of winners to pick
+     * @param excluded   Ids that cannot win. These are skipped without counting towards the amount
+     * @param random     The source of randomness
+     *
+     * @return The winners, which may be fewer than the amount if there are not enough candidates
+     */
+    public static long[] select(long[] candidates, int amount, Set<Long> excluded,
+        Random random) {
+        long[] winners = new long[Math.min(amount, candidates.length)];
+        int picked = 0;
+        for (int i = 0; i < candidates.length && picked < winners.length; i++) {
+            int j = i + random.nextInt(candidates.length - i);
+            long candidate = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = candidate;
+            if (!excluded.contains(candidate)) {
+                winners[picked++] = candidate;
+            }
+        }
+        return picked == winners.length ? winners : Arrays.copyOf(winners, picked);
+    }
+}
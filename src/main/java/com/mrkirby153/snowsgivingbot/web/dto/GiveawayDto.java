@@ -17,16 +17,19 @@ public class GiveawayDto {
 
     private final Timestamp endsAt;
     private final boolean entered;
+    private final long entrants;
 
     private final GiveawayState state;
 
-    public GiveawayDto(GiveawayEntity entity, String channelName, boolean entered) {
+    public GiveawayDto(GiveawayEntity entity, String channelName, boolean entered,
+        long entrants) {
         this.id = entity.getId();
         this.name = entity.getName();
-        this.channelId = entity.getChannelId();
+        this.channelId = Long.toString(entity.getChannelId());
         this.channelName = channelName;
         this.endsAt = entity.getEndsAt();
         this.entered = entered;
+        this.entrants = entrants;
         this.state = entity.getState();
     }
 }
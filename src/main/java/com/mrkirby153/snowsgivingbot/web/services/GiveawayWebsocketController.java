@@ -4,6 +4,7 @@ import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
 import com.mrkirby153.snowsgivingbot.event.GiveawayEndedEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayEnterEvent;
 import com.mrkirby153.snowsgivingbot.event.GiveawayStartedEvent;
+import com.mrkirby153.snowsgivingbot.services.EntrantCounterService;
 import com.mrkirby153.snowsgivingbot.web.dto.GiveawayDto;
 import com.mrkirby153.snowsgivingbot.web.dto.ws.GiveawayEnterWSEvent;
 import com.mrkirby153.snowsgivingbot.web.dto.ws.GiveawayStateChangeWSEvent;
@@ -27,6 +28,7 @@ public class GiveawayWebsocketController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final ShardManager shardManager;
+    private final EntrantCounterService entrantCounterService;
 
     @EventListener
     public void onGiveawayStart(GiveawayStartedEvent event) {
@@ -36,8 +38,7 @@ public class GiveawayWebsocketController {
         messagingTemplate
             .convertAndSend(topic,
                 new GiveawayStateChangeWSEvent(State.START,
-                    new GiveawayDto(event.getGiveaway(), getChannelName(event.getGiveaway()),
-                        false)));
+                    buildDto(event.getGiveaway(), false)));
     }
 
     @EventListener
@@ -47,7 +48,7 @@ public class GiveawayWebsocketController {
         String topic = String.format(GIVEAWAY_STATE_FORMAT, giveaway.getGuildId());
         messagingTemplate
             .convertAndSend(topic, new GiveawayStateChangeWSEvent(State.END,
-                new GiveawayDto(event.getGiveaway(), getChannelName(event.getGiveaway()), false)));
+                buildDto(event.getGiveaway(), false)));
     }
 
     @EventListener
@@ -57,7 +58,12 @@ public class GiveawayWebsocketController {
         log.debug("Sending enter of {} to giveaway {}", u, g);
         messagingTemplate.convertAndSendToUser(u.getId(), String.format(USER_ENTER_GIVEAWAY_TOPIC, g.getGuildId()),
             new GiveawayEnterWSEvent(u.getId(),
-                new GiveawayDto(event.getGiveaway(), getChannelName(event.getGiveaway()), true)));
+                buildDto(event.getGiveaway(), true)));
+    }
+
+    private GiveawayDto buildDto(GiveawayEntity entity, boolean entered) {
+        return new GiveawayDto(entity, getChannelName(entity), entered,
+            entrantCounterService.getCount(entity));
     }
 
     private String getChannelName(GiveawayEntity entity) {
@@ -8,6 +8,7 @@ import com.mrkirby153.snowsgivingbot.entity.GiveawayEntrantEntity;
 import com.mrkirby153.snowsgivingbot.entity.repo.EntrantRepository;
 import com.mrkirby153.snowsgivingbot.entity.repo.GiveawayRepository;
 import com.mrkirby153.snowsgivingbot.services.DiscordService;
+import com.mrkirby153.snowsgivingbot.services.EntrantCounterService;
 import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
 import com.mrkirby153.snowsgivingbot.services.setting.Settings;
 import com.mrkirby153.snowsgivingbot.web.DiscordUser;
@@ -38,12 +39,13 @@ public class WebGiveawayService {
     private final ShardManager shardManager;
     private final DiscordService discordService;
     private final SettingService settingService;
+    private final EntrantCounterService entrantCounterService;
 
-    private final LoadingCache<String, String> channelNameCache = CacheBuilder.newBuilder()
+    private final LoadingCache<Long, String> channelNameCache = CacheBuilder.newBuilder()
         .maximumSize(1000).build(
-            new CacheLoader<String, String>() {
+            new CacheLoader<Long, String>() {
                 @Override
-                public String load(String key) throws Exception {
+                public String load(Long key) throws Exception {
                     TextChannel chan = shardManager.getTextChannelById(key);
                     if (chan == null) {
                         throw new IllegalStateException("Channel " + key + " was not found!");
@@ -53,14 +55,14 @@ public class WebGiveawayService {
             });
 
     public AllGiveawaysDto getGiveaways(String guild, DiscordUser user) {
-        List<String> visibleChannels = new ArrayList<>();
+        List<Long> visibleChannels = new ArrayList<>();
         Guild g = shardManager.getGuildById(guild);
         if (g != null) {
             Member member = g.retrieveMemberById(user.getId()).complete();
             if (member != null) {
                 g.getTextChannels().forEach(channel -> {
                     if (discordService.canSeeChannel(member, channel)) {
-                        visibleChannels.add(channel.getId());
+                        visibleChannels.add(channel.getIdLong());
                     }
                 });
             }
@@ -68,14 +70,15 @@ public class WebGiveawayService {
         if (visibleChannels.size() == 0) {
             return new AllGiveawaysDto(new ArrayList<>(), new ArrayList<>());
         }
+        long guildId = Long.parseLong(guild);
         List<GiveawayEntity> activeGiveaways = giveawayRepository
-            .getAllActiveGiveawaysInChannel(guild, visibleChannels);
+            .getAllActiveGiveawaysInChannel(guildId, visibleChannels);
         List<GiveawayEntity> inactiveGiveaways = giveawayRepository
-            .getExpiredGiveaways(guild, visibleChannels,
+            .getExpiredGiveaways(guildId, visibleChannels,
                 Timestamp.from(Instant.now().minus(settingService.get(
                     Settings.HIDE_GIVEAWAYS_DASHBOARD_AGE, guild), ChronoUnit.MILLIS)));
         List<GiveawayEntrantEntity> entrants = entrantRepository
-            .findAllByUserInGuild(user.getId(), guild);
+            .findAllByUserInGuild(Long.parseLong(user.getId()), guildId);
         List<GiveawayDto> activeDtos = activeGiveaways.stream()
             .map(entity -> buildDto(entity, entrants)).collect(
                 Collectors.toList());
@@ -89,10 +92,10 @@ public class WebGiveawayService {
         Optional<GiveawayEntrantEntity> entrant = entrants.stream()
             .filter(e -> e.getGiveaway().getId() == giveaway.getId()).findFirst();
         return new GiveawayDto(giveaway, getChannelName(giveaway.getChannelId()),
-            entrant.isPresent());
+            entrant.isPresent(), entrantCounterService.getCount(giveaway));
     }
 
-    private String getChannelName(String id) {
+    private String getChannelName(long id) {
         try {
             return channelNameCache.get(id);
         } catch (ExecutionException e) {
@@ -0,0 +1,4 @@
+-- Persisted entrant count for giveaways, updated periodically while the giveaway is running
+ALTER TABLE `giveaways` ADD `entrant_count` INT NOT NULL DEFAULT 0 AFTER `winners`;
+
+UPDATE `giveaways` g SET `entrant_count` = (SELECT COUNT(*) FROM `entrants` e WHERE e.giveaway_id = g.id);
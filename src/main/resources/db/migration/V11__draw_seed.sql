@@ -0,0 +1,3 @@
+-- Seed and pre-drawn candidates of the winner draw, so rerolls do not reload all entrants
+ALTER TABLE `giveaways` ADD `draw_seed` BIGINT NULL AFTER `final_winners`;
+ALTER TABLE `giveaways` ADD `reroll_candidates` TEXT NULL AFTER `draw_seed`;
@@ -0,0 +1,11 @@
+-- Dense per-giveaway entry numbers, so winners can be sampled with point lookups
+ALTER TABLE `entrants` ADD `entry_number` INT NULL AFTER `user_id`;
+
+UPDATE `entrants` e
+    INNER JOIN (SELECT `id`, ROW_NUMBER() OVER (PARTITION BY `giveaway_id` ORDER BY `id`) AS `n`
+                FROM `entrants`) r ON e.id = r.id
+SET e.entry_number = r.n;
+
+ALTER TABLE `entrants` MODIFY `entry_number` INT NOT NULL;
+
+ALTER TABLE `entrants` ADD UNIQUE INDEX `entrants_giveaway_entry` (`giveaway_id`, `entry_number`);
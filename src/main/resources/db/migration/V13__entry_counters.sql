@@ -0,0 +1,5 @@
+-- Per-giveaway entry number counter, so concurrent writers take entry numbers under the
+-- giveaway's row lock instead of reading MAX(entry_number)
+ALTER TABLE `giveaways` ADD `last_entry_number` INT NOT NULL DEFAULT 0 AFTER `entrant_count`;
+
+UPDATE `giveaways` g SET `last_entry_number` = (SELECT COALESCE(MAX(`entry_number`), 0) FROM `entrants` e WHERE e.giveaway_id = g.id);
@@ -0,0 +1,2 @@
+-- Entrants are batch inserted over JDBC, so ids are generated by the database
+ALTER TABLE `entrants` MODIFY `id` INT NOT NULL AUTO_INCREMENT;
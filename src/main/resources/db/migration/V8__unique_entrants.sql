@@ -0,0 +1,6 @@
+-- Remove duplicate entries, keeping the earliest entry for each user
+DELETE e1 FROM `entrants` e1
+    INNER JOIN `entrants` e2
+    ON e1.giveaway_id = e2.giveaway_id AND e1.user_id = e2.user_id AND e1.id > e2.id;
+
+ALTER TABLE `entrants` ADD UNIQUE INDEX `entrants_giveaway_user` (`giveaway_id`, `user_id`);
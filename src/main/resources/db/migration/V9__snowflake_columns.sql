@@ -0,0 +1,18 @@
+-- Store discord snowflakes as BIGINT instead of VARCHAR
+
+-- Giveaways that never had their message sent cannot be converted
+UPDATE `giveaways` SET `message` = '0' WHERE `message` NOT REGEXP '^[0-9]+$';
+UPDATE `giveaways` SET `host` = NULL WHERE `host` NOT REGEXP '^[0-9]+$';
+
+ALTER TABLE `giveaways`
+    MODIFY `host` BIGINT DEFAULT NULL,
+    MODIFY `guild_id` BIGINT NOT NULL,
+    MODIFY `channel` BIGINT NOT NULL,
+    MODIFY `message` BIGINT NOT NULL;
+
+ALTER TABLE `giveaways` ADD INDEX `giveaways_guild_state` (`guild_id`, `state`);
+
+ALTER TABLE `entrants` MODIFY `user_id` BIGINT NOT NULL;
+
+-- (giveaway_id, user_id) is covered by entrants_giveaway_user
+ALTER TABLE `entrants` ADD INDEX `entrants_user_giveaway` (`user_id`, `giveaway_id`);
@@ -0,0 +1,197 @@
+package com.mrkirby153.snowsgivingbot.entity.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the entrant inserts against an in-memory H2 database in MySQL mode. The repository's
+ * transaction is started by the test, as there is no Spring proxy to start it
+ */
+class EntrantRepositoryCustomImplTest {
+
+    private static final long GIVEAWAY = 1;
+    private static final int WRITERS = 8;
+
+    private static final AtomicInteger DATABASE_IDS = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private EntrantRepositoryCustomImpl repository;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:entrants" + DATABASE_IDS.incrementAndGet()
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(
+            new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        repository = new EntrantRepositoryCustomImpl(jdbcTemplate);
+        executor = Executors.newFixedThreadPool(WRITERS);
+
+        jdbcTemplate.execute("CREATE TABLE giveaways (id BIGINT PRIMARY KEY, "
+            + "last_entry_number INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE entrants (id INT AUTO_INCREMENT PRIMARY KEY, "
+            + "giveaway_id BIGINT NOT NULL, user_id BIGINT NOT NULL, entry_number INT NOT NULL, "
+            + "UNIQUE (giveaway_id, user_id), UNIQUE (giveaway_id, entry_number))");
+        jdbcTemplate.update("INSERT INTO giveaways (id) VALUES (?)", GIVEAWAY);
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private boolean[] insert(List<Long> userIds) {
+        return transactionTemplate.execute(status -> repository.batchInsert(GIVEAWAY, userIds));
+    }
+
+    private static List<Long> users(long first, int count) {
+        return LongStream.range(first, first + count).boxed().collect(Collectors.toList());
+    }
+
+    private List<Long> entryNumbers() {
+        return jdbcTemplate.queryForList(
+            "SELECT entry_number FROM entrants WHERE giveaway_id = ? ORDER BY entry_number",
+            Long.class, GIVEAWAY);
+    }
+
+    @Test
+    void reportsOnlyNewUsers() {
+        insert(users(1, 3));
+
+        boolean[] inserted = insert(Arrays.asList(3L, 4L, 4L, 1L, 5L));
+
+        assertArrayEquals(new boolean[]{false, true, false, false, true}, inserted);
+        assertEquals(users(1, 5), entryNumbers());
+        assertEquals(5, repository.getLastEntryNumber(GIVEAWAY));
+    }
+
+    @Test
+    void insertsSingleUserIfAbsent() {
+        assertTrue(transactionTemplate
+            .execute(status -> repository.insertIfAbsent(GIVEAWAY, 10)));
+        assertFalse(transactionTemplate
+            .execute(status -> repository.insertIfAbsent(GIVEAWAY, 10)));
+        assertTrue(transactionTemplate
+            .execute(status -> repository.insertIfAbsent(GIVEAWAY, 11)));
+
+        assertEquals(users(1, 2), entryNumbers());
+        assertEquals(2, repository.getLastEntryNumber(GIVEAWAY));
+    }
+
+    @Test
+    void looksUpEntrantsByEntryNumber() {
+        insert(users(101, 5));
+        jdbcTemplate.update("DELETE FROM entrants WHERE giveaway_id = ? AND entry_number = 3",
+            GIVEAWAY);
+
+        Map<Long, Long> ids = repository.getEntrantIdsAt(GIVEAWAY, Arrays.asList(1L, 3L, 5L, 9L));
+
+        Map<Long, Long> expected = new HashMap<>();
+        expected.put(1L, 101L);
+        expected.put(5L, 105L);
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void concurrentSingleInsertsTakeDenseEntryNumbers() throws Exception {
+        int entries = 100;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            futures.add(executor.submit(() -> {
+                // Every writer tries every user, so most inserts are duplicates
+                for (long userId = 0; userId < entries; userId++) {
+                    long id = userId;
+                    transactionTemplate.execute(status -> repository.insertIfAbsent(GIVEAWAY, id));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertEquals(users(1, entries), entryNumbers());
+        assertEquals(entries, repository.getLastEntryNumber(GIVEAWAY));
+    }
+
+    @Test
+    void concurrentWritersTakeDenseEntryNumbers() throws Exception {
+        int batches = 25;
+        int batchSize = 20;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            long first = writer * (long) batches * batchSize;
+            futures.add(executor.submit(() -> {
+                for (int batch = 0; batch < batches; batch++) {
+                    insert(users(first + batch * batchSize, batchSize));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        int total = WRITERS * batches * batchSize;
+        assertEquals(users(1, total), entryNumbers());
+        assertEquals(total, repository.getLastEntryNumber(GIVEAWAY));
+    }
+
+    @Test
+    void concurrentWritersEnterOverlappingUsersOnce() throws Exception {
+        int users = 200;
+        List<Future<boolean[]>> futures = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            // Every writer enters the same users, starting at a different one
+            List<Long> userIds = users(0, users);
+            Collections.rotate(userIds, writer * 25);
+            futures.add(executor.submit(() -> {
+                boolean[] inserted = new boolean[users];
+                for (int start = 0; start < users; start += 10) {
+                    boolean[] batch = insert(userIds.subList(start, start + 10));
+                    System.arraycopy(batch, 0, inserted, start, batch.length);
+                }
+                return inserted;
+            }));
+        }
+        int reported = 0;
+        for (Future<boolean[]> future : futures) {
+            for (boolean inserted : future.get()) {
+                reported += inserted ? 1 : 0;
+            }
+        }
+
+        assertEquals(users, reported);
+        assertEquals(users(1, users), entryNumbers());
+        assertEquals(users, (long) jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT user_id) FROM entrants WHERE giveaway_id = ?", Long.class,
+            GIVEAWAY));
+    }
+}
@@ -0,0 +1,156 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.utils.EntryPayload;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntryBatcherTest {
+
+    private static final long WAIT_FOREVER = 60_000;
+
+    private final ScheduledExecutorService flushExecutor = Executors
+        .newSingleThreadScheduledExecutor();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Long>> recorded = new CopyOnWriteArrayList<>();
+    private final List<String> acknowledgements = new CopyOnWriteArrayList<>();
+    private final Channel channel = (Channel) Proxy.newProxyInstance(
+        Channel.class.getClassLoader(), new Class<?>[]{Channel.class},
+        (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "basicAck":
+                    acknowledgements.add("ack " + args[0]);
+                    return null;
+                case "basicNack":
+                    acknowledgements.add("nack " + args[0] + " requeue=" + args[2]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+    private EntryBatcher batcher(int batchSize, long batchWait, int maxAttempts,
+        Consumer<List<Long>> recorder) {
+        return new EntryBatcher("test", batchSize, batchWait, maxAttempts, flushExecutor,
+            recorder, meterRegistry);
+    }
+
+    private EntryBatcher batcher(int batchSize, long batchWait) {
+        return batcher(batchSize, batchWait, 5, recorded::add);
+    }
+
+    private static byte[] payload(long... userIds) {
+        return EntryPayload.encode(userIds, 0);
+    }
+
+    @AfterEach
+    void shutdown() {
+        flushExecutor.shutdownNow();
+    }
+
+    @Test
+    void flushesFullBatchAndAcknowledgesLastDelivery() {
+        EntryBatcher batcher = batcher(3, WAIT_FOREVER);
+
+        batcher.add(channel, 1, payload(10));
+        batcher.add(channel, 2, payload(11));
+        assertTrue(recorded.isEmpty());
+        batcher.add(channel, 3, payload(12));
+
+        assertEquals(Collections.singletonList(Arrays.asList(10L, 11L, 12L)), recorded);
+        assertEquals(Collections.singletonList("ack 3"), acknowledgements);
+    }
+
+    @Test
+    void countsEveryEntryInAPayload() {
+        EntryBatcher batcher = batcher(3, WAIT_FOREVER);
+
+        assertEquals(3, batcher.add(channel, 1, payload(10, 11, 12)));
+        assertEquals(Collections.singletonList(Arrays.asList(10L, 11L, 12L)), recorded);
+    }
+
+    @Test
+    void flushesOnceBatchHoldsTheMaximumDeliveries() {
+        EntryBatcher batcher = batcher(100, WAIT_FOREVER);
+        batcher.setMaxDeliveries(2);
+
+        batcher.add(channel, 1, payload(10));
+        batcher.add(channel, 2, payload(11));
+
+        assertEquals(Collections.singletonList(Arrays.asList(10L, 11L)), recorded);
+        assertEquals(Collections.singletonList("ack 2"), acknowledgements);
+    }
+
+    @Test
+    void flushesPartialBatchAfterWait() throws InterruptedException {
+        EntryBatcher batcher = batcher(100, 10);
+
+        batcher.add(channel, 1, payload(10));
+        for (int i = 0; i < 100 && acknowledgements.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Collections.singletonList(Collections.singletonList(10L)), recorded);
+        assertEquals(Collections.singletonList("ack 1"), acknowledgements);
+    }
+
+    @Test
+    void acknowledgesSkippedDeliveriesWithoutRecording() {
+        EntryBatcher batcher = batcher(100, WAIT_FOREVER);
+
+        batcher.skip(channel, 1);
+        batcher.flush();
+        batcher.flush();
+
+        assertTrue(recorded.isEmpty());
+        assertEquals(Collections.singletonList("ack 1"), acknowledgements);
+    }
+
+    @Test
+    void requeuesFailingBatchUntilAttemptsRunOut() {
+        EntryBatcher batcher = batcher(1, WAIT_FOREVER, 2, userIds -> {
+            throw new IllegalStateException("Database unavailable");
+        });
+
+        batcher.add(channel, 1, payload(10));
+        batcher.add(channel, 2, payload(10));
+        batcher.add(channel, 3, payload(10));
+
+        assertEquals(Arrays.asList("nack 1 requeue=true", "nack 2 requeue=false",
+            "nack 3 requeue=true"), acknowledgements);
+        assertEquals(1, meterRegistry.counter("rabbit_entries_dropped").count(), 0);
+    }
+
+    @Test
+    void successResetsFailedAttempts() {
+        boolean[] fail = {true};
+        EntryBatcher batcher = batcher(1, WAIT_FOREVER, 2, userIds -> {
+            if (fail[0]) {
+                throw new IllegalStateException("Database unavailable");
+            }
+        });
+
+        batcher.add(channel, 1, payload(10));
+        fail[0] = false;
+        batcher.add(channel, 2, payload(10));
+        fail[0] = true;
+        batcher.add(channel, 3, payload(10));
+
+        assertEquals(Arrays.asList("nack 1 requeue=true", "ack 2", "nack 3 requeue=true"),
+            acknowledgements);
+    }
+}
@@ -0,0 +1,114 @@
+package com.mrkirby153.snowsgivingbot.services.impl;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.services.setting.GuildSetting;
+import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
+import com.mrkirby153.snowsgivingbot.services.setting.Settings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Covers the render cache. Nothing is sent, so the manager's Discord services are left out
+ */
+class GiveawayRenderManagerTest {
+
+    private final Map<GuildSetting<?>, Object> values = new HashMap<>();
+    private final GiveawayRenderManager renderManager = new GiveawayRenderManager(null,
+        settings(values), null, null, new SimpleMeterRegistry());
+
+    private static SettingService settings(Map<GuildSetting<?>, Object> values) {
+        return (SettingService) Proxy.newProxyInstance(SettingService.class.getClassLoader(),
+            new Class<?>[]{SettingService.class}, (proxy, method, args) -> {
+                GuildSetting<?> setting = (GuildSetting<?>) args[0];
+                return values.containsKey(setting) ? values.get(setting)
+                    : setting.getDefaultSetting();
+            });
+    }
+
+    private static GiveawayEntity giveaway(long id) {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(id);
+        giveaway.setName("Giveaway " + id);
+        giveaway.setGuildId(1);
+        giveaway.setWinners(1);
+        giveaway.setEndsAt(new Timestamp(1_600_000_000_000L));
+        return giveaway;
+    }
+
+    @Test
+    void unchangedGiveawayReusesRenderedMessage() {
+        GiveawayEntity giveaway = giveaway(1);
+
+        Message first = renderManager.renderMessage(giveaway, 5);
+
+        assertSame(first, renderManager.renderMessage(giveaway, 5));
+    }
+
+    @Test
+    void displayedEntrantCountChangesRender() {
+        values.put(Settings.DISPLAY_ENTRANT_COUNT, true);
+        GiveawayEntity giveaway = giveaway(1);
+
+        Message first = renderManager.renderMessage(giveaway, 5);
+
+        assertNotSame(first, renderManager.renderMessage(giveaway, 6));
+    }
+
+    @Test
+    void hiddenEntrantCountDoesNotChangeRender() {
+        values.put(Settings.DISPLAY_ENTRANT_COUNT, false);
+        GiveawayEntity giveaway = giveaway(1);
+
+        Message first = renderManager.renderMessage(giveaway, 5);
+
+        assertSame(first, renderManager.renderMessage(giveaway, 6));
+    }
+
+    @Test
+    void settingChangeRendersAgain() {
+        GiveawayEntity giveaway = giveaway(1);
+        Message first = renderManager.renderMessage(giveaway, 5);
+
+        values.put(Settings.USE_BUTTONS, true);
+
+        assertNotSame(first, renderManager.renderMessage(giveaway, 5));
+    }
+
+    @Test
+    void giveawayChangesRenderAgain() {
+        GiveawayEntity giveaway = giveaway(1);
+        Message first = renderManager.renderMessage(giveaway, 5);
+
+        giveaway.setName("Renamed");
+        Message renamed = renderManager.renderMessage(giveaway, 5);
+        giveaway.setState(GiveawayState.ENDED);
+        giveaway.setFinalWinners(new String[]{"10"});
+        Message ended = renderManager.renderMessage(giveaway, 5);
+
+        assertNotSame(first, renamed);
+        assertNotSame(renamed, ended);
+    }
+
+    @Test
+    void invalidateDropsOnlyThatGiveaway() {
+        GiveawayEntity first = giveaway(1);
+        GiveawayEntity second = giveaway(2);
+        Message firstMessage = renderManager.renderMessage(first, 5);
+        Message secondMessage = renderManager.renderMessage(second, 5);
+
+        renderManager.invalidate(first);
+
+        assertNotSame(firstMessage, renderManager.renderMessage(first, 5));
+        assertSame(secondMessage, renderManager.renderMessage(second, 5));
+    }
+}
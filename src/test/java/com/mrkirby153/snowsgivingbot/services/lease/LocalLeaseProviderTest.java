@@ -0,0 +1,79 @@
+package com.mrkirby153.snowsgivingbot.services.lease;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalLeaseProviderTest {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final Duration SHORT_TTL = Duration.ofMillis(20);
+
+    private final LocalLeaseProvider provider = new LocalLeaseProvider();
+
+    @Test
+    void acquiresFreeLease() {
+        assertTrue(provider.tryAcquire("giveaway:1", "a", TTL));
+    }
+
+    @Test
+    void rejectsLeaseHeldByAnotherOwner() {
+        provider.tryAcquire("giveaway:1", "a", TTL);
+
+        assertFalse(provider.tryAcquire("giveaway:1", "b", TTL));
+        assertFalse(provider.tryAcquire("giveaway:1", "a", TTL));
+    }
+
+    @Test
+    void keysAreIndependent() {
+        provider.tryAcquire("giveaway:1", "a", TTL);
+
+        assertTrue(provider.tryAcquire("giveaway:2", "b", TTL));
+    }
+
+    @Test
+    void expiredLeaseCanBeTakenOver() throws InterruptedException {
+        provider.tryAcquire("giveaway:1", "a", SHORT_TTL);
+        Thread.sleep(SHORT_TTL.toMillis() * 3);
+
+        assertTrue(provider.tryAcquire("giveaway:1", "b", TTL));
+        assertFalse(provider.renew("giveaway:1", "a", TTL));
+    }
+
+    @Test
+    void renewExtendsLease() throws InterruptedException {
+        provider.tryAcquire("giveaway:1", "a", SHORT_TTL);
+
+        assertTrue(provider.renew("giveaway:1", "a", TTL));
+        Thread.sleep(SHORT_TTL.toMillis() * 3);
+        assertFalse(provider.tryAcquire("giveaway:1", "b", TTL));
+    }
+
+    @Test
+    void renewFailsForOtherOwnerOrMissingLease() {
+        provider.tryAcquire("giveaway:1", "a", TTL);
+
+        assertFalse(provider.renew("giveaway:1", "b", TTL));
+        assertFalse(provider.renew("giveaway:2", "a", TTL));
+    }
+
+    @Test
+    void releaseFreesLease() {
+        provider.tryAcquire("giveaway:1", "a", TTL);
+        provider.release("giveaway:1", "a");
+
+        assertTrue(provider.tryAcquire("giveaway:1", "b", TTL));
+    }
+
+    @Test
+    void releaseByOtherOwnerIsIgnored() {
+        provider.tryAcquire("giveaway:1", "a", TTL);
+        provider.release("giveaway:1", "b");
+
+        assertFalse(provider.tryAcquire("giveaway:1", "b", TTL));
+        assertTrue(provider.renew("giveaway:1", "a", TTL));
+    }
+}
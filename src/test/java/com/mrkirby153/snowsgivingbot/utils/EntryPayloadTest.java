@@ -0,0 +1,91 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntryPayloadTest {
+
+    private static List<Long> decode(byte[] body) {
+        List<Long> userIds = new ArrayList<>();
+        int count = EntryPayload.decode(body, userIds::add);
+        assertEquals(userIds.size(), count);
+        return userIds;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void roundTripsUserIdsAndTimestamp() {
+        long[] userIds = {1, 100_000_000_000_000_000L, Long.MAX_VALUE};
+        byte[] body = EntryPayload.encode(userIds, 1_600_000_000_000L);
+
+        assertTrue(EntryPayload.isBinary(body));
+        assertEquals(2 + 8 + userIds.length * 8, body.length);
+        assertEquals(1_600_000_000_000L, EntryPayload.getTimestamp(body));
+        assertEquals(Arrays.asList(1L, 100_000_000_000_000_000L, Long.MAX_VALUE), decode(body));
+    }
+
+    @Test
+    void omitsTimestampWhenNegative() {
+        byte[] body = EntryPayload.encode(new long[]{5}, -1);
+
+        assertEquals(2 + 8, body.length);
+        assertEquals(-1, EntryPayload.getTimestamp(body));
+        assertEquals(Collections.singletonList(5L), decode(body));
+    }
+
+    @Test
+    void decodesEmptyPayload() {
+        assertEquals(Collections.emptyList(), decode(EntryPayload.encode(new long[0], 0)));
+    }
+
+    @Test
+    void decodesLegacyPayloads() {
+        byte[] quoted = ascii("\"100000000000000000\"");
+        byte[] bare = ascii("42");
+
+        assertFalse(EntryPayload.isBinary(quoted));
+        assertEquals(-1, EntryPayload.getTimestamp(quoted));
+        assertEquals(Collections.singletonList(100_000_000_000_000_000L), decode(quoted));
+        assertEquals(Collections.singletonList(42L), decode(bare));
+    }
+
+    @Test
+    void rejectsTruncatedBinaryPayload() {
+        byte[] body = EntryPayload.encode(new long[]{1, 2}, 0);
+        byte[] truncated = Arrays.copyOf(body, body.length - 3);
+        List<Long> userIds = new ArrayList<>();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> EntryPayload.decode(truncated, userIds::add));
+        assertTrue(userIds.isEmpty());
+    }
+
+    @Test
+    void rejectsMissingTimestamp() {
+        byte[] body = {EntryPayload.VERSION_1, EntryPayload.FLAG_TIMESTAMP, 0, 0};
+
+        assertEquals(-1, EntryPayload.getTimestamp(body));
+        assertThrows(IllegalArgumentException.class, () -> EntryPayload.decode(body, id -> {
+        }));
+    }
+
+    @Test
+    void rejectsMalformedLegacyPayload() {
+        assertThrows(IllegalArgumentException.class,
+            () -> EntryPayload.decode(ascii("{\"user\": 1}"), id -> {
+            }));
+    }
+}
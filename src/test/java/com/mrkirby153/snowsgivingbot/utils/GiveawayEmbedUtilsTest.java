@@ -0,0 +1,101 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import com.mrkirby153.snowsgivingbot.entity.GiveawayEntity;
+import com.mrkirby153.snowsgivingbot.entity.GiveawayState;
+import com.mrkirby153.snowsgivingbot.services.setting.GuildSetting;
+import com.mrkirby153.snowsgivingbot.services.setting.SettingService;
+import com.mrkirby153.snowsgivingbot.services.setting.Settings;
+import net.dv8tion.jda.api.entities.Message;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GiveawayEmbedUtilsTest {
+
+    private final Map<GuildSetting<?>, Object> values = new HashMap<>();
+    private final SettingService settings = settings(values);
+
+    /**
+     * Creates settings backed by the map, falling back to each setting's default
+     */
+    static SettingService settings(Map<GuildSetting<?>, Object> values) {
+        return (SettingService) Proxy.newProxyInstance(SettingService.class.getClassLoader(),
+            new Class<?>[]{SettingService.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("get")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                GuildSetting<?> setting = (GuildSetting<?>) args[0];
+                return values.containsKey(setting) ? values.get(setting)
+                    : setting.getDefaultSetting();
+            });
+    }
+
+    private static GiveawayEntity giveaway(long id) {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(id);
+        giveaway.setName("Giveaway " + id);
+        giveaway.setGuildId(1);
+        giveaway.setWinners(1);
+        giveaway.setEndsAt(new Timestamp(1_600_000_000_000L));
+        return giveaway;
+    }
+
+    private static String description(Message message) {
+        return message.getEmbeds().get(0).getDescription();
+    }
+
+    @Test
+    void displaysEntrantCountIfEnabled() {
+        values.put(Settings.DISPLAY_ENTRANT_COUNT, true);
+
+        Message message = GiveawayEmbedUtils.renderMessage(giveaway(1), settings, 6);
+
+        assertTrue(description(message).contains("Entrants: **6**"));
+    }
+
+    @Test
+    void hidesEntrantCountIfDisabled() {
+        values.put(Settings.DISPLAY_ENTRANT_COUNT, false);
+
+        Message message = GiveawayEmbedUtils.renderMessage(giveaway(1), settings, 6);
+
+        assertFalse(description(message).contains("Entrants"));
+    }
+
+    @Test
+    void hidesEntrantCountWhileEnding() {
+        values.put(Settings.DISPLAY_ENTRANT_COUNT, true);
+        GiveawayEntity giveaway = giveaway(1);
+        giveaway.setState(GiveawayState.ENDING);
+
+        Message message = GiveawayEmbedUtils.renderMessage(giveaway, settings, 6);
+
+        assertFalse(description(message).contains("Entrants"));
+    }
+
+    @Test
+    void buttonsSettingChangesInstructions() {
+        values.put(Settings.USE_BUTTONS, true);
+
+        Message message = GiveawayEmbedUtils.renderMessage(giveaway(1), settings, 5);
+
+        assertTrue(description(message).startsWith("Click the buttons below to enter!"));
+    }
+
+    @Test
+    void endedGiveawayShowsWinners() {
+        GiveawayEntity giveaway = giveaway(1);
+        giveaway.setState(GiveawayState.ENDED);
+        giveaway.setFinalWinners(new String[]{"10"});
+
+        Message message = GiveawayEmbedUtils.renderMessage(giveaway, settings, 5);
+
+        assertTrue(description(message).contains("**Winner:** <@!10>"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageChunkerTest {
+
+    private static List<String> userIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> Long.toString(100_000_000_000_000_000L + i))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void buildsNothingWhenEmpty() {
+        assertEquals(Collections.emptyList(), new MessageChunker().build());
+    }
+
+    @Test
+    void keepsShortTextInOneMessage() {
+        List<String> messages = new MessageChunker().append("Winners: ").appendMention(" 1 ")
+            .separator(", ").appendLine("done").build();
+
+        assertEquals(Collections.singletonList("Winners: <@!1>, done\n"), messages);
+    }
+
+    @Test
+    void fillsMessageExactlyToTheLimit() {
+        List<String> messages = new MessageChunker(10).append("12345").append("67890").build();
+
+        assertEquals(Collections.singletonList("1234567890"), messages);
+    }
+
+    @Test
+    void startsNewMessageWhenTextDoesNotFit() {
+        List<String> messages = new MessageChunker(10).append("12345").separator(", ")
+            .append("1234").append("123").build();
+
+        assertEquals(Arrays.asList("12345", "1234123"), messages);
+    }
+
+    @Test
+    void separatorIsDroppedAtStartOfMessage() {
+        List<String> messages = new MessageChunker(11).append("12345")
+            .appendMentions(Arrays.asList("1", "2", "3"), " ").build();
+
+        assertEquals(Arrays.asList("12345<@!1>", "<@!2> <@!3>"), messages);
+    }
+
+    @Test
+    void rejectsTextLongerThanAMessage() {
+        MessageChunker chunker = new MessageChunker(10);
+
+        assertThrows(IllegalArgumentException.class, () -> chunker.append("12345678901"));
+        assertThrows(IllegalArgumentException.class, () -> chunker.appendLine("1234567890"));
+    }
+
+    @Test
+    void splitsLargeAnnouncementWithoutLosingMentions() {
+        List<String> winners = userIds(1000);
+
+        List<String> messages = new MessageChunker().append(":tada: Congratulations ")
+            .appendMentions(winners, " ").separator(", ").append("you won **Prize**").build();
+
+        assertTrue(messages.size() > 1);
+        assertTrue(messages.stream()
+            .allMatch(message -> message.length() <= MessageChunker.MAX_MESSAGE_LENGTH));
+        assertTrue(messages.get(0).startsWith(":tada: Congratulations <@!"));
+        assertTrue(messages.get(messages.size() - 1).endsWith("you won **Prize**"));
+        String mentions = String.join(" ", messages).replaceAll("[^<@!>0-9]", "");
+        assertEquals(winners.stream().map(id -> "<@!" + id + ">").collect(Collectors.joining()),
+            mentions);
+    }
+
+    @Test
+    void mentionsLengthMatchesJoinedMentions() {
+        String[] winners = {"1", " 22 ", "333"};
+
+        assertEquals("<@!1> <@!22> <@!333>".length(),
+            MessageChunker.mentionsLength(winners, " "));
+        assertEquals(0, MessageChunker.mentionsLength(new String[0], " "));
+    }
+}
@@ -0,0 +1,107 @@
+package com.mrkirby153.snowsgivingbot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WinnerSelectorTest {
+
+    private static long[] candidates(int count) {
+        return LongStream.rangeClosed(1, count).toArray();
+    }
+
+    @Test
+    void picksDistinctWinnersFromCandidates() {
+        long[] winners = WinnerSelector
+            .select(candidates(100), 10, Collections.emptySet(), new Random(1));
+
+        assertEquals(10, winners.length);
+        assertEquals(10, Arrays.stream(winners).distinct().count());
+        assertTrue(Arrays.stream(winners).allMatch(id -> id >= 1 && id <= 100));
+    }
+
+    @Test
+    void returnsEveryCandidateWhenThereAreTooFew() {
+        long[] winners = WinnerSelector
+            .select(candidates(3), 5, Collections.emptySet(), new Random(1));
+
+        Arrays.sort(winners);
+        assertArrayEquals(new long[]{1, 2, 3}, winners);
+    }
+
+    @Test
+    void returnsNothingWithoutCandidates() {
+        assertEquals(0,
+            WinnerSelector.select(new long[0], 3, Collections.emptySet(), new Random(1)).length);
+    }
+
+    @Test
+    void skipsExcludedCandidatesWithoutCountingThem() {
+        Set<Long> excluded = new HashSet<>();
+        for (long i = 1; i <= 8; i++) {
+            excluded.add(i);
+        }
+
+        long[] winners = WinnerSelector.select(candidates(10), 5, excluded, new Random(1));
+
+        Arrays.sort(winners);
+        assertArrayEquals(new long[]{9, 10}, winners);
+    }
+
+    @Test
+    void fillsTheAmountAroundExclusions() {
+        Set<Long> excluded = new HashSet<>(Arrays.asList(1L, 2L, 3L));
+
+        long[] winners = WinnerSelector.select(candidates(20), 10, excluded, new Random(7));
+
+        assertEquals(10, winners.length);
+        assertTrue(Arrays.stream(winners).noneMatch(excluded::contains));
+    }
+
+    @Test
+    void sameSeedDrawsSameWinners() {
+        long[] first = WinnerSelector
+            .select(candidates(1000), 25, Collections.emptySet(), new Random(42));
+        long[] second = WinnerSelector
+            .select(candidates(1000), 25, Collections.emptySet(), new Random(42));
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void everyCandidateIsEquallyLikely() {
+        int trials = 30_000;
+        int[] wins = new int[3];
+        Random random = new Random(3);
+        for (int i = 0; i < trials; i++) {
+            long[] winner = WinnerSelector
+                .select(candidates(3), 1, Collections.emptySet(), random);
+            wins[(int) winner[0] - 1]++;
+        }
+
+        for (int count : wins) {
+            assertEquals(trials / 3.0, count, trials * 0.02);
+        }
+    }
+
+    @Test
+    void shufflesCandidatesInPlace() {
+        long[] candidates = candidates(50);
+
+        long[] winners = WinnerSelector.select(candidates, 5, Collections.emptySet(), new Random(5));
+
+        // The winners are swapped to the front of the candidate array
+        assertArrayEquals(winners, Arrays.copyOf(candidates, 5));
+        assertFalse(Arrays.equals(candidates(50), candidates));
+    }
+}